@@ -0,0 +1,211 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.*;
+
+/**
+ * Micro-benchmarks for the launcher's hot CPU paths: manifest and version
+ * JSON parsing, the profile sidecar, asset index reading, library rule
+ * evaluation, launch plan validation, native JAR extraction and the
+ * extracted-natives cache.
+ *
+ * No external harness — compile next to the launcher (javac wants the
+ * public class in CTBadlion.java) and run from the repository root:
+ *
+ *   mkdir -p out/src && cp ctbadlion.java out/src/CTBadlion.java
+ *   javac -encoding UTF-8 -d out out/src/CTBadlion.java bench/CTBadlionBench.java
+ *   java -cp out CTBadlionBench [name-regex]
+ *
+ * Each benchmark warms up, then runs timed iterations and prints mean
+ * throughput (+/- worst deviation across iterations) and bytes allocated
+ * per op, as reported by the JVM's per-thread allocation counter. Tune with
+ * -Dbench.warmup=ms, -Dbench.time=ms and -Dbench.iterations=N; point
+ * -Dbench.fixtures at another directory to try real Mojang files.
+ * {@link CTBadlionChecks} asserts that the paths measured here stay correct.
+ */
+public class CTBadlionBench {
+
+    static final long WARMUP_MS  = Long.getLong("bench.warmup", 2_000);
+    static final long ITER_MS    = Long.getLong("bench.time", 1_000);
+    static final int  ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    static final Path FIXTURES   = Paths.get(System.getProperty("bench.fixtures", "bench/fixtures"));
+
+    /** Results land here so the JIT cannot discard the work */
+    static volatile long sink;
+
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        Path work = Files.createTempDirectory("ctbadlion-bench");
+        try {
+            Map<String, Op> ops = benchmarks(work);
+            System.out.printf("%-26s %14s %10s %14s%n", "benchmark", "ops/s", "+/-%", "alloc B/op");
+            for (Map.Entry<String, Op> b : ops.entrySet()) {
+                if (filter.matcher(b.getKey()).find()) measure(b.getKey(), b.getValue());
+            }
+        } finally {
+            deleteTree(work);
+        }
+    }
+
+    static Map<String, Op> benchmarks(Path work) throws Exception {
+        String manifest = read("version_manifest_v2.json");
+        String modern   = read("1.20.1.json");
+        String legacy   = read("1.12.2.json");
+        Path assetIndex = FIXTURES.resolve("asset_index_5.json");
+
+        // Sidecar copy of the modern profile, as VersionProfile.load would write it
+        Path json = work.resolve("1.20.1.json");
+        Files.write(json, modern.getBytes(StandardCharsets.UTF_8));
+        CTBadlion.VersionProfile.load(json);
+        Path sidecar = CTBadlion.VersionProfile.sidecarOf(json);
+        long mtime = Files.getLastModifiedTime(json).toMillis(), size = Files.size(json);
+        CTBadlion.VersionProfile modernVp = CTBadlion.VersionProfile.read(CTBadlion.JsonReader.of(modern));
+        CTBadlion.VersionProfile legacyVp = CTBadlion.VersionProfile.read(CTBadlion.JsonReader.of(legacy));
+
+        // A plan whose inputs are one small file per library, like a real classpath
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < modernVp.libraries.size(); i++) {
+            Path p = work.resolve("lib" + i + ".jar");
+            Files.write(p, new byte[64]);
+            inputs.add(p);
+        }
+        Path planFile = work.resolve("bench.plan");
+        new CTBadlion.LaunchPlan("settings", Arrays.asList("java", "-cp", "x", "Main"), inputs).save(planFile);
+
+        Path nativesJar = syntheticNativesJar(work.resolve("natives-synthetic.jar"));
+        Path warmDir = Files.createDirectories(work.resolve("natives-warm"));
+        CTBadlion.extractNativeJar(nativesJar, warmDir);
+        Path cachedSet = work.resolve("natives-cache-set");
+        List<String> cachedNames = CTBadlion.extractToCache(nativesJar, cachedSet, Collections.emptyList());
+        Path linkedDir = Files.createDirectories(work.resolve("natives-linked"));
+        CTBadlion.linkNatives(cachedSet, cachedNames, linkedDir);
+
+        Map<String, Op> ops = new LinkedHashMap<>();
+        ops.put("manifest.parse", () -> CTBadlion.readManifest(CTBadlion.JsonReader.of(manifest)));
+        ops.put("profile.read.modern", () -> CTBadlion.VersionProfile.read(CTBadlion.JsonReader.of(modern)));
+        ops.put("profile.read.legacy", () -> CTBadlion.VersionProfile.read(CTBadlion.JsonReader.of(legacy)));
+        ops.put("profile.sidecar", () -> CTBadlion.VersionProfile.readSidecar(sidecar, mtime, size));
+        ops.put("profile.load.memory", () -> CTBadlion.VersionProfile.load(json));
+        ops.put("assetIndex.read", () -> CTBadlion.readAssetObjects(assetIndex));
+        ops.put("library.rules", () -> {
+            int n = 0;
+            for (CTBadlion.VersionProfile vp : Arrays.asList(modernVp, legacyVp)) {
+                for (CTBadlion.Library lib : vp.libraries) {
+                    if (lib.appliesHere()) n++;
+                    if (lib.nativesForHost() != null) n++;
+                }
+            }
+            return n;
+        });
+        ops.put("plan.loadIfValid", () -> CTBadlion.LaunchPlan.loadIfValid(planFile, "settings"));
+        ops.put("natives.extract.cold", () -> {
+            Path dir = Files.createTempDirectory(work, "nat");
+            CTBadlion.extractNativeJar(nativesJar, dir);
+            deleteTree(dir);
+            return dir;
+        });
+        ops.put("natives.extract.warm", () -> {
+            CTBadlion.extractNativeJar(nativesJar, warmDir);
+            return warmDir;
+        });
+        ops.put("natives.cache.hit", () -> {
+            List<String> names = CTBadlion.readNativesMarker(cachedSet);
+            CTBadlion.linkNatives(cachedSet, names, linkedDir);
+            return names;
+        });
+        return ops;
+    }
+
+    static void measure(String name, Op op) throws Exception {
+        com.sun.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+        long tid = Thread.currentThread().getId();
+
+        run(op, WARMUP_MS);
+        double[] rates = new double[ITERATIONS];
+        long ops = 0, allocated = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long a0 = threads != null ? threads.getThreadAllocatedBytes(tid) : 0;
+            long t0 = System.nanoTime();
+            long n = run(op, ITER_MS);
+            long ns = System.nanoTime() - t0;
+            if (threads != null) allocated += threads.getThreadAllocatedBytes(tid) - a0;
+            rates[i] = n * 1e9 / ns;
+            ops += n;
+        }
+        double mean = Arrays.stream(rates).average().orElse(0);
+        double spread = Arrays.stream(rates).map(r -> Math.abs(r - mean)).max().orElse(0);
+        System.out.printf("%-26s %14.1f %9.1f%% %14s%n", name, mean,
+                mean > 0 ? spread * 100 / mean : 0,
+                threads != null ? String.valueOf(allocated / Math.max(1, ops)) : "n/a");
+    }
+
+    static long run(Op op, long millis) throws Exception {
+        long end = System.nanoTime() + millis * 1_000_000, n = 0;
+        do {
+            Object r = op.run();
+            sink += r != null ? r.hashCode() : 0;
+            n++;
+        } while (System.nanoTime() < end);
+        return n;
+    }
+
+    static String read(String fixture) throws IOException {
+        return new String(Files.readAllBytes(FIXTURES.resolve(fixture)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A JAR shaped like an LWJGL natives classifier: a manifest, a few dozen
+     * class files that must be skipped, and a handful of native libraries.
+     * Built from a fixed seed so every run extracts the same bytes.
+     */
+    static Path syntheticNativesJar(Path jar) throws IOException {
+        Random rnd = new Random(20260826L);
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zos.write("Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            zos.putNextEntry(new ZipEntry("META-INF/versions/9/ignored.so"));
+            zos.write(payload(rnd, 4_096));
+            for (int i = 0; i < 40; i++) {
+                zos.putNextEntry(new ZipEntry("org/lwjgl/system/Gen" + i + ".class"));
+                zos.write(payload(rnd, 2_048 + rnd.nextInt(16_384)));
+            }
+            String[] natives = {"linux/x64/org/lwjgl/liblwjgl.so", "linux/x64/org/lwjgl/glfw/libglfw.so",
+                    "windows/x64/org/lwjgl/lwjgl.dll", "windows/x64/org/lwjgl/glfw/glfw.dll",
+                    "macos/arm64/org/lwjgl/liblwjgl.dylib", "macos/x64/org/lwjgl/openal/libopenal.jnilib"};
+            for (String n : natives) {
+                zos.putNextEntry(new ZipEntry(n));
+                zos.write(payload(rnd, 200_000 + rnd.nextInt(600_000)));
+            }
+        }
+        return jar;
+    }
+
+    /** Half-compressible bytes, roughly like machine code */
+    static byte[] payload(Random rnd, int size) {
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) b[i] = (i & 1) == 0 ? (byte) rnd.nextInt(256) : (byte) (i >> 4);
+        return b;
+    }
+
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (java.util.stream.Stream<Path> walk = Files.walk(root)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException ignored) {
+                }
+            });
+        }
+    }
+}
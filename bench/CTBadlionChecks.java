@@ -0,0 +1,270 @@
+import java.io.*;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Correctness checks for the caches the benchmarks lean on: JSON parsing,
+ * the version profile sidecar round trip, launch plan invalidation and
+ * resuming a .part download against the mock upstream.
+ *
+ * No external harness, like {@link CTBadlionBench}; compile the same way
+ * and run from the repository root:
+ *
+ *   mkdir -p out/src && cp ctbadlion.java out/src/CTBadlion.java
+ *   javac -encoding UTF-8 -d out out/src/CTBadlion.java bench/CTBadlionChecks.java
+ *   java -cp out CTBadlionChecks [name-regex]
+ *
+ * Prints one line per check and exits with status 1 if any failed.
+ */
+public class CTBadlionChecks {
+
+    static final Path FIXTURES = Paths.get(System.getProperty("bench.fixtures", "bench/fixtures"));
+
+    interface Check {
+        void run(Path work) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        Map<String, Check> checks = new LinkedHashMap<>();
+        checks.put("json.tree", CTBadlionChecks::jsonTree);
+        checks.put("json.manifest", CTBadlionChecks::jsonManifest);
+        checks.put("profile.sidecar", CTBadlionChecks::profileSidecar);
+        checks.put("profile.restamp", CTBadlionChecks::profileRestamp);
+        checks.put("plan.invalidation", CTBadlionChecks::planInvalidation);
+        checks.put("download.resume", CTBadlionChecks::downloadResume);
+
+        int failed = 0;
+        for (Map.Entry<String, Check> c : checks.entrySet()) {
+            if (!filter.matcher(c.getKey()).find()) continue;
+            Path work = Files.createTempDirectory("ctbadlion-check");
+            try {
+                c.getValue().run(work);
+                System.out.printf("ok    %s%n", c.getKey());
+            } catch (Exception | AssertionError e) {
+                failed++;
+                System.out.printf("FAIL  %s: %s%n", c.getKey(), e);
+            } finally {
+                CTBadlionBench.deleteTree(work);
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    // ───────── JSON ─────────
+
+    static void jsonTree(Path work) throws Exception {
+        String json = "{\"s\": \"a\\\"b\\\\c\\n\\u00e9\\ud83d\\ude00\", \"n\": [0, -3, 2.5, 1e3],"
+                + " \"t\": true, \"f\": false, \"z\": null, \"o\": {\"id\": \"1.20\"}, \"e\": []}";
+        Map<String, Object> tree = CTBadlion.MockUpstream.cast(CTBadlion.JsonReader.of(json).readTree());
+        check(tree != null, "not an object");
+        check("a\"b\\c\né😀".equals(tree.get("s")), "string escapes: " + tree.get("s"));
+        List<?> n = (List<?>) tree.get("n");
+        check(n.size() == 4, "array length " + n.size());
+        double[] want = {0, -3, 2.5, 1000};
+        for (int i = 0; i < want.length; i++) {
+            check(((Number) n.get(i)).doubleValue() == want[i], "number " + i + ": " + n.get(i));
+        }
+        check(Boolean.TRUE.equals(tree.get("t")) && Boolean.FALSE.equals(tree.get("f")), "booleans");
+        check(tree.containsKey("z") && tree.get("z") == null, "null");
+        check("1.20".equals(CTBadlion.MockUpstream.cast(tree.get("o")).get("id")), "numeric-looking string");
+        check(((List<?>) tree.get("e")).isEmpty(), "empty array");
+    }
+
+    /** The real manifest fixture survives readTree → toJson → readTree unchanged */
+    static void jsonManifest(Path work) throws Exception {
+        Object tree;
+        try (CTBadlion.JsonReader r = CTBadlion.JsonReader.of(FIXTURES.resolve("version_manifest_v2.json"))) {
+            tree = r.readTree();
+        }
+        Object again = CTBadlion.JsonReader.of(CTBadlion.MockUpstream.toJson(tree)).readTree();
+        check(tree.equals(again), "manifest changed on a round trip");
+        check(!((List<?>) CTBadlion.MockUpstream.cast(tree).get("versions")).isEmpty(), "no versions");
+    }
+
+    // ───────── Version profile sidecar ─────────
+
+    /** The sidecar written by load() reads back field for field as the JSON parse */
+    static void profileSidecar(Path work) throws Exception {
+        for (String fixture : Arrays.asList("1.20.1.json", "1.12.2.json")) {
+            Path json = Files.copy(FIXTURES.resolve(fixture), work.resolve(fixture));
+            CTBadlion.VersionProfile parsed = CTBadlion.VersionProfile.load(json);
+            Path sidecar = CTBadlion.VersionProfile.sidecarOf(json);
+            check(Files.exists(sidecar), fixture + ": no sidecar written");
+            long mtime = Files.getLastModifiedTime(json).toMillis(), size = Files.size(json);
+            CTBadlion.VersionProfile read = CTBadlion.VersionProfile.readSidecar(sidecar, mtime, size);
+            check(read != null, fixture + ": sidecar rejected");
+            check(!parsed.libraries.isEmpty(), fixture + ": no libraries parsed");
+            String d = diff("profile", parsed, read);
+            check(d == null, fixture + ": " + d + " differs after the round trip");
+            check(CTBadlion.VersionProfile.readSidecar(sidecar, mtime + 1, size) == null,
+                    fixture + ": sidecar accepted for another mtime");
+            check(CTBadlion.VersionProfile.readSidecar(sidecar, mtime, size + 1) == null,
+                    fixture + ": sidecar accepted for another size");
+        }
+    }
+
+    /** An edited JSON is parsed again and the sidecar restamped */
+    static void profileRestamp(Path work) throws Exception {
+        Path json = Files.copy(FIXTURES.resolve("1.20.1.json"), work.resolve("1.20.1.json"));
+        CTBadlion.VersionProfile first = CTBadlion.VersionProfile.load(json);
+        check(CTBadlion.VersionProfile.load(json) == first, "unchanged JSON not served from memory");
+        Files.write(json, "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        CTBadlion.VersionProfile second = CTBadlion.VersionProfile.load(json);
+        check(second != first, "edited JSON served from the stale cache");
+        check(second.jsonSize == Files.size(json), "profile stamped with the old size");
+        check(CTBadlion.VersionProfile.readSidecar(CTBadlion.VersionProfile.sidecarOf(json),
+                Files.getLastModifiedTime(json).toMillis(), Files.size(json)) != null, "sidecar not restamped");
+    }
+
+    // ───────── Launch plan ─────────
+
+    static void planInvalidation(Path work) throws Exception {
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) inputs.add(Files.write(work.resolve("lib" + i + ".jar"), new byte[64]));
+        // Longer than writeUTF's limit, like a real classpath
+        char[] cp = new char[70_000];
+        Arrays.fill(cp, 'x');
+        List<String> command = Arrays.asList("java", "-cp", new String(cp), "Main");
+        Path planFile = work.resolve("check.plan");
+        new CTBadlion.LaunchPlan("settings", command, inputs).save(planFile);
+
+        CTBadlion.LaunchPlan plan = CTBadlion.LaunchPlan.loadIfValid(planFile, "settings");
+        check(plan != null, "fresh plan rejected");
+        check(plan.command.equals(command), "command changed on a round trip");
+        check(plan.inputs.equals(inputs), "inputs changed on a round trip");
+        check(CTBadlion.LaunchPlan.loadIfValid(planFile, "other settings") == null, "accepted other settings");
+
+        Path touched = inputs.get(1);
+        FileTime was = Files.getLastModifiedTime(touched);
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(was.toMillis() + 5_000));
+        check(CTBadlion.LaunchPlan.loadIfValid(planFile, "settings") == null, "accepted an input with a new mtime");
+        Files.setLastModifiedTime(touched, was);
+        check(CTBadlion.LaunchPlan.loadIfValid(planFile, "settings") != null, "rejected once the mtime was restored");
+
+        Files.write(touched, new byte[65]);
+        Files.setLastModifiedTime(touched, was);
+        check(CTBadlion.LaunchPlan.loadIfValid(planFile, "settings") == null, "accepted an input with a new size");
+
+        Files.delete(inputs.get(2));
+        check(CTBadlion.LaunchPlan.loadIfValid(planFile, "settings") == null, "accepted a missing input");
+    }
+
+    // ───────── .part resume ─────────
+
+    /** A half-written .part is finished with a Range request and verified against the SHA-1 */
+    static void downloadResume(Path work) throws Exception {
+        CTBadlion.MockUpstream mock = CTBadlion.MockUpstream.fromProperties(FIXTURES).start(0);
+        String mirror = CTBadlion.Http.mirror;
+        CTBadlion.Http.mirror = mock.baseUrl();
+        try {
+            Constructor<CTBadlion> c = CTBadlion.class.getDeclaredConstructor(boolean.class);
+            c.setAccessible(true);
+            CTBadlion app = c.newInstance(true);
+
+            // The largest object the mock serves, so half of it spans several reads
+            Map.Entry<String, byte[]> file = Collections.max(mock.files.entrySet(),
+                    Comparator.comparingInt((Map.Entry<String, byte[]> e) -> e.getValue().length));
+            byte[] body = file.getValue();
+            String url = "https://" + file.getKey(), sha1 = sha1(body);
+            check(body.length > 1024, "largest mock file is only " + body.length + " bytes");
+
+            Path target = work.resolve("resumed.bin");
+            Path part = work.resolve("resumed.bin.part");
+            int half = body.length / 2;
+            Files.write(part, Arrays.copyOf(body, half));
+            long served = mock.bytesServed.get();
+            app.fetchToFile(url, target, "resume", sha1, body.length, 30, CTBadlion.Priority.CRITICAL,
+                    new CTBadlion.LaunchMetrics("checks", "vanilla"), null);
+            check(Arrays.equals(Files.readAllBytes(target), body), "resumed file differs");
+            check(!Files.exists(part), ".part left behind");
+            long sent = mock.bytesServed.get() - served;
+            check(sent == body.length - half, "served " + sent + " bytes, expected only the missing "
+                    + (body.length - half));
+
+            // Complete but never moved into place: verified and moved without a request
+            Path target2 = work.resolve("complete.bin");
+            Files.write(work.resolve("complete.bin.part"), body);
+            long requests = mock.requests.get();
+            app.fetchToFile(url, target2, "complete", sha1, body.length, 30, CTBadlion.Priority.CRITICAL,
+                    new CTBadlion.LaunchMetrics("checks", "vanilla"), null);
+            check(mock.requests.get() == requests, "re-requested a complete .part");
+            check(Arrays.equals(Files.readAllBytes(target2), body), "completed file differs");
+
+            // A damaged .part fails the hash rather than landing in place
+            Path target3 = work.resolve("damaged.bin");
+            byte[] bad = Arrays.copyOf(body, half);
+            bad[0] ^= 1;
+            Files.write(work.resolve("damaged.bin.part"), bad);
+            boolean rejected = false;
+            try {
+                app.fetchToFile(url, target3, "damaged", sha1, body.length, 30, CTBadlion.Priority.CRITICAL,
+                        new CTBadlion.LaunchMetrics("checks", "vanilla"), null);
+            } catch (IOException e) {
+                rejected = true;
+            }
+            check(rejected && !Files.exists(target3), "a damaged .part was accepted");
+        } finally {
+            CTBadlion.Http.mirror = mirror;
+            mock.stop();
+        }
+    }
+
+    // ───────── Helpers ─────────
+
+    static void check(boolean ok, String what) {
+        if (!ok) throw new AssertionError(what);
+    }
+
+    static String sha1(byte[] b) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte x : MessageDigest.getInstance("SHA-1").digest(b)) sb.append(String.format("%02x", x));
+        return sb.toString();
+    }
+
+    /**
+     * Field-by-field comparison through lists, maps and nested objects; the
+     * path of the first difference, or null. Independent of the sidecar
+     * format, so a field both sides forget still shows up as lost.
+     */
+    static String diff(String path, Object a, Object b) throws IllegalAccessException {
+        if (a == b) return null;
+        if (a == null || b == null || a.getClass() != b.getClass()) return path;
+        if (a instanceof String || a instanceof Number || a instanceof Boolean || a instanceof Enum
+                || a instanceof BigDecimal) {
+            return a.equals(b) ? null : path;
+        }
+        if (a instanceof List) {
+            List<?> la = (List<?>) a, lb = (List<?>) b;
+            if (la.size() != lb.size()) return path + ".size";
+            for (int i = 0; i < la.size(); i++) {
+                String d = diff(path + "[" + i + "]", la.get(i), lb.get(i));
+                if (d != null) return d;
+            }
+            return null;
+        }
+        if (a instanceof Map) {
+            Map<?, ?> ma = (Map<?, ?>) a, mb = (Map<?, ?>) b;
+            if (!ma.keySet().equals(mb.keySet())) return path + ".keys";
+            for (Object k : ma.keySet()) {
+                String d = diff(path + "[" + k + "]", ma.get(k), mb.get(k));
+                if (d != null) return d;
+            }
+            return null;
+        }
+        for (Field f : a.getClass().getDeclaredFields()) {
+            if (Modifier.isStatic(f.getModifiers())) continue;
+            f.setAccessible(true);
+            String d = diff(path + "." + f.getName(), f.get(a), f.get(b));
+            if (d != null) return d;
+        }
+        return null;
+    }
+}
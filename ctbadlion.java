@@ -30,7 +30,7 @@
  * ║  BUILD:  javac CTBadlion.java                                             ║
  * ║  RUN:    java CTBadlion                                                   ║
  * ║  JAR:    jar cfe ctbadlion.jar CTBadlion CTBadlion*.class                 ║
- * ║  Requires: Java 8+ (Java 17/21+ supported via module flags)              ║
+ * ║  Requires: Java 11+ (Java 17/21+ supported via module flags)             ║
  * ╚═══════════════════════════════════════════════════════════════════════════╝
  */
 
@@ -41,42 +41,20 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.net.*;
+import java.net.http.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
-import java.util.regex.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.zip.*;
 
-public class CTBadlion extends JFrame {
-
-    // ═══════════════════════════════════════════════════════════════════
-    //  PALETTE — Badlion-Inspired Dark Theme
-    // ═══════════════════════════════════════════════════════════════════
-    static final Color C_BG          = new Color(22, 22, 26);
-    static final Color C_SIDEBAR     = new Color(18, 18, 22);
-    static final Color C_SIDEBAR_HI  = new Color(38, 38, 44);
-    static final Color C_SIDEBAR_SEL = new Color(48, 48, 56);
-    static final Color C_TOPBAR      = new Color(30, 30, 36);
-    static final Color C_FIELD       = new Color(40, 40, 48);
-    static final Color C_HOVER       = new Color(55, 55, 64);
-    static final Color C_POPUP       = new Color(36, 36, 42);
-    static final Color C_ACCENT      = new Color(0, 168, 255);   // Badlion blue
-    static final Color C_ACCENT_HI   = new Color(30, 190, 255);
-    static final Color C_ACCENT_DIM  = new Color(0, 120, 190);
-    static final Color C_GREEN       = new Color(62, 195, 55);
-    static final Color C_WHITE       = new Color(235, 235, 240);
-    static final Color C_GREY        = new Color(160, 160, 170);
-    static final Color C_DIM         = new Color(100, 100, 115);
-    static final Color C_BORDER      = new Color(50, 50, 58);
-    static final Color C_CONSOLE     = new Color(14, 14, 18);
-    static final Color C_CON_TEXT    = new Color(70, 210, 110);
-    static final Color C_CON_ERR     = new Color(255, 90, 90);
-    static final Color C_CARD_BG     = new Color(44, 44, 52);
-    static final Color C_RED         = new Color(255, 75, 75);
+public class CTBadlion {
 
     // ═══════════════════════════════════════════════════════════════════
     //  CONSTANTS
@@ -89,57 +67,297 @@ public class CTBadlion extends JFrame {
     static final String FABRIC_META_URL    = "https://meta.fabricmc.net/v2/versions/loader/";
     static final String MODRINTH_API       = "https://api.modrinth.com/v2/";
 
-    static Path ROOT, VER_DIR, LIB_DIR, ASS_DIR, NAT_DIR, PROF_FILE, MODS_DIR, LOG_DIR;
+    // Asset sync: concurrent requests in flight (-Dctbadlion.assetThreads=N)
+    static final int ASSET_CONCURRENCY = Integer.getInteger("ctbadlion.assetThreads", 16);
+    static final int ASSET_RETRIES     = 3;
+    // Reconnects after a body stalls for its timeout, each resuming from the .part
+    static final int STALL_RETRIES     = 2;
+    // Library resolution: parallel downloads (-Dctbadlion.libThreads=N)
+    static final int LIB_CONCURRENCY   = Integer.getInteger("ctbadlion.libThreads", 8);
+    // Transfers open at once across every launch and install (-Dctbadlion.downloadSlots=N)
+    static final int DOWNLOAD_SLOTS    = Integer.getInteger("ctbadlion.downloadSlots",
+            ASSET_CONCURRENCY + LIB_CONCURRENCY);
+    // Console card: lines kept on screen (-Dctbadlion.consoleLines=N); older ones spill to LOG_DIR
+    static final int  CONSOLE_LINES     = Integer.getInteger("ctbadlion.consoleLines", 5_000);
+    static final long CONSOLE_SPILL_MAX = 8L << 20;
+    // Per-session game log: rolled by size or age, old segments gzipped (-Dctbadlion.gameLogGzip=false)
+    static final long    GAME_LOG_MAX     = 16L << 20;
+    static final long    GAME_LOG_MAX_AGE = TimeUnit.HOURS.toMillis(1);
+    static final boolean GAME_LOG_GZIP    = Boolean.parseBoolean(System.getProperty("ctbadlion.gameLogGzip", "true"));
+
+    static Path ROOT, VER_DIR, LIB_DIR, ASS_DIR, NAT_DIR, PROF_FILE, MODS_DIR, LOG_DIR, INST_DIR;
+    // Blobs shared by every root on this machine, opt-in (-Dctbadlion.store=<dir>|default); null when off
+    static ArtifactStore STORE;
+    static Path MANIFEST_CACHE, MANIFEST_META;
 
     // ═══════════════════════════════════════════════════════════════════
-    //  UI COMPONENTS
+    //  FRONT END
     // ═══════════════════════════════════════════════════════════════════
-    JTextField     tfUser, tfRam, tfJavaPath;
-    DarkDropdown   ddVersion;
-    JCheckBox      cbFabric, cbFabOpt, cbSnapshots, cbFullscreen;
-    JTextArea      taLog;
-    JButton        btnPlay;
-    JProgressBar   progBar;
-    JLabel         lblStatus, lblProgress;
-    JPanel         contentCards, sidebarPanel;
-    CardLayout     contentLay;
-    String         curNav = "play";
+    final boolean  headless;
+    // The Swing window; null when headless
+    final Window   ui;
     volatile boolean launching = false;
+    volatile boolean launchCancelled = false;
 
     // Version list: [id, type, url]
     final List<String[]> allVersions  = Collections.synchronizedList(new ArrayList<>());
-    final List<String[]> dispVersions = Collections.synchronizedList(new ArrayList<>());
 
-    ExecutorService executor = Executors.newFixedThreadPool(4);
-    final AtomicInteger dlCount = new AtomicInteger(0);
-    final AtomicInteger dlTotal = new AtomicInteger(0);
+    static final TaskScheduler TASKS = new TaskScheduler();
+    final LogPipeline console = new LogPipeline();
+    final ProcessSupervisor games = new ProcessSupervisor();
 
     // ═══════════════════════════════════════════════════════════════════
     //  MAIN
     // ═══════════════════════════════════════════════════════════════════
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--headless")) {
+            System.exit(runHeadless(args));
+        }
         initDirs();
-        applyDarkDefaults();
-        SwingUtilities.invokeLater(() -> {
-            CTBadlion app = new CTBadlion();
-            app.setVisible(true);
-            app.log(APP + " v" + VER + " initialized");
-            app.log("Root: " + ROOT);
-            app.log("Java: " + System.getProperty("java.version") + " ("
-                    + System.getProperty("java.vendor") + ")");
-            app.log("OS:   " + System.getProperty("os.name") + " "
-                    + System.getProperty("os.arch"));
-            app.fetchManifest();
-        });
+        startMockUpstream();
+        SwingUtilities.invokeLater(() -> new CTBadlion().ui.open());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  HEADLESS CLI
+    // ═══════════════════════════════════════════════════════════════════
+    static final String USAGE = "Usage: java CTBadlion --headless --version <id> [--user <name>] [--fabric]\n"
+            + "         [--fabric-optimized] [--ram <MB>] [--java <path>] [--fullscreen]\n"
+            + "       java CTBadlion --headless --instance <name> [--version <id> ...]\n"
+            + "       java CTBadlion --headless --install <id>[,<id>...] [--fabric]\n"
+            + "       java CTBadlion --headless --gc-store";
+    // Versions prepared side by side by --install (-Dctbadlion.installParallel=N)
+    static final int INSTALL_PARALLEL = Integer.getInteger("ctbadlion.installParallel", 4);
+
+    /**
+     * Same install and launch pipeline as the Play button, without a window:
+     * no AWT or Swing class is even loaded and everything goes to stdout.
+     * Unset options fall back to the saved profile. Returns the game's exit
+     * code, 1 if preparation failed, 2 for bad arguments.
+     */
+    static int runHeadless(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Map<String, String> opt = new HashMap<>();
+        Set<String> flags = new HashSet<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--headless": case "--fabric": case "--fabric-optimized": case "--fullscreen":
+                case "--gc-store":
+                    flags.add(args[i]);
+                    break;
+                case "--version": case "--install": case "--instance": case "--user": case "--ram": case "--java":
+                    if (i + 1 >= args.length) {
+                        System.err.println(args[i] + " needs a value\n" + USAGE);
+                        return 2;
+                    }
+                    opt.put(args[i], args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i] + "\n" + USAGE);
+                    return 2;
+            }
+        }
+        boolean play = opt.containsKey("--version") || opt.containsKey("--instance");
+        int modes = (play ? 1 : 0) + (opt.containsKey("--install") ? 1 : 0)
+                + (flags.contains("--gc-store") ? 1 : 0);
+        if (modes != 1) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        initDirs();
+        startMockUpstream();
+        CTBadlion app = new CTBadlion(true);
+        Properties profile = new Properties();
+        if (Files.exists(PROF_FILE)) {
+            try (InputStream in = Files.newInputStream(PROF_FILE)) {
+                profile.load(in);
+            } catch (IOException e) {
+                app.logErr("Profile load: " + e.getMessage());
+            }
+        }
+        app.log(APP + " v" + VER + " (headless) — root " + ROOT);
+        if (flags.contains("--gc-store")) {
+            if (STORE == null) {
+                app.logErr("The shared store is off; enable it with -Dctbadlion.store=<dir> or =default");
+                return 1;
+            }
+            try {
+                long[] freed = STORE.gc(TimeUnit.HOURS.toMillis(1));
+                app.log(String.format("Store %s: removed %d unreferenced blob(s), %.1f MB",
+                        STORE.dir, freed[0], freed[1] / 1048576.0));
+                return 0;
+            } catch (IOException e) {
+                app.logErr("Store cleanup failed: " + e.getMessage());
+                return 1;
+            }
+        }
+        try {
+            app.loadVersions();
+            String java = opt.getOrDefault("--java", profile.getProperty("java", "")).trim();
+            String user = opt.getOrDefault("--user", profile.getProperty("user", "Player")).trim();
+            String ram  = opt.getOrDefault("--ram", profile.getProperty("ram", "2048")).trim();
+            if (java.isEmpty()) java = app.getDefaultJavaPath();
+
+            if (opt.containsKey("--install")) {
+                List<LaunchOptions> batch = new ArrayList<>();
+                for (String id : opt.get("--install").split(",")) {
+                    if (id.trim().isEmpty()) continue;
+                    String[] ver = app.findVersion(id.trim());
+                    if (ver == null) {
+                        app.logErr("Unknown version " + id.trim() + " (not in the manifest or " + VER_DIR + ")");
+                        return 1;
+                    }
+                    batch.add(new LaunchOptions(ver[0], ver[2], user, ram, java,
+                            flags.contains("--fabric"), false, false));
+                }
+                return app.installAll(batch) == 0 ? 0 : 1;
+            }
+
+            Instance inst = opt.containsKey("--instance") ? Instance.open(opt.get("--instance")) : null;
+            if (inst != null) {
+                // --version (re)defines the instance; otherwise it launches as saved
+                if (opt.containsKey("--version")) {
+                    inst.version = opt.get("--version");
+                    inst.fabric = flags.contains("--fabric");
+                } else if (!inst.exists()) {
+                    app.logErr("No instance '" + inst.name + "' yet — create it with --version <id>");
+                    return 1;
+                } else if (flags.contains("--fabric")) {
+                    inst.fabric = true;
+                }
+                if (opt.containsKey("--ram")) inst.ramMb = opt.get("--ram").trim();
+                if (opt.containsKey("--java")) inst.javaPath = opt.get("--java").trim();
+                inst.save();
+            }
+            String verId = inst != null ? inst.version : opt.get("--version");
+            String[] ver = app.findVersion(verId);
+            if (ver == null) {
+                app.logErr("Unknown version " + verId + " (not in the manifest or " + VER_DIR + ")");
+                return 1;
+            }
+            LaunchOptions o = inst != null
+                    ? inst.options(ver[2], user, java, flags.contains("--fabric-optimized"), flags.contains("--fullscreen"))
+                    : new LaunchOptions(ver[0], ver[2], user, ram, java,
+                            flags.contains("--fabric"), flags.contains("--fabric-optimized"),
+                            flags.contains("--fullscreen"));
+            return app.prepareAndLaunch(o);
+        } catch (Exception e) {
+            app.logErr("Launch failed: " + e.getMessage());
+            return 1;
+        } finally {
+            TASKS.shutdownNow();
+        }
+    }
+
+    /** Fills allVersions from the revalidated manifest, else the cached copy, plus local installs */
+    void loadVersions() {
+        try {
+            revalidateManifest();
+        } catch (Exception e) {
+            logErr("Manifest fetch failed: " + e.getMessage() + " — using cached copy");
+        }
+        if (Files.exists(MANIFEST_CACHE)) {
+            try {
+                parseManifest(MANIFEST_CACHE);
+            } catch (IOException e) {
+                logErr("Cached manifest unreadable: " + e.getMessage());
+            }
+        }
+        scanLocalVersions();
+    }
+
+    String[] findVersion(String id) {
+        synchronized (allVersions) {
+            for (String[] v : allVersions) {
+                if (v[0].equals(id)) return v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Install-only: prepares every version side by side without launching and
+     * caches each complete launch plan, so a later launch starts warm. Versions
+     * share one download registry, so a library or asset object they have in
+     * common is fetched once. Returns the number of versions that failed.
+     */
+    int installAll(List<LaunchOptions> batch) {
+        String loader = batch.stream().anyMatch(o -> o.fabric) ? "fabric" : "vanilla";
+        LaunchMetrics metrics = new LaunchMetrics("install-" + batch.size(), loader);
+        log("═══ Installing " + batch.size() + " version(s), " + Math.min(INSTALL_PARALLEL, batch.size())
+                + " at a time ═══");
+        List<Callable<LaunchPlan>> jobs = new ArrayList<>();
+        for (LaunchOptions o : batch) {
+            // Pre-provisioning is prefetch: a launch started meanwhile goes first
+            jobs.add(() -> DOWNLOADS.background(() -> {
+                long t = System.nanoTime();
+                try {
+                    LaunchPlan plan = prepareLaunchPlan(o, launchSettingsKey(o), metrics);
+                    if (plan.complete) plan.save(planFile(o));
+                    return plan;
+                } finally {
+                    metrics.phase("install " + o.verId, t);
+                }
+            }));
+        }
+        TaskScheduler.Batch<LaunchPlan> run = TASKS.fanOut(TASKS.io, INSTALL_PARALLEL, jobs);
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            String id = batch.get(i).verId;
+            try {
+                if (!run.results.get(i).get().complete) failed.add(id + " (incomplete)");
+            } catch (ExecutionException e) {
+                failed.add(id + " (" + e.getCause().getMessage() + ")");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                run.cancel();
+                failed.add(id + " (interrupted)");
+            }
+        }
+
+        double secs = (System.nanoTime() - metrics.t0) / 1e9;
+        double mb = metrics.bytesDownloaded.sum() / 1048576.0;
+        log("═══ Installed " + (batch.size() - failed.size()) + "/" + batch.size() + " version(s) in "
+                + String.format("%.1f s", secs) + " ═══");
+        log(String.format("Downloaded %d files, %.1f MB — %.2f MB/s aggregate",
+                metrics.filesDownloaded.sum(), mb, secs > 0 ? mb / secs : 0));
+        log(String.format("Dedup saved %d files, %.1f MB shared between versions",
+                metrics.filesDeduped.sum(), metrics.bytesDeduped.sum() / 1048576.0));
+        if (!failed.isEmpty()) logErr("Failed: " + String.join(", ", failed));
+        for (String line : metrics.summary()) log(line);
+        try {
+            log("Install report: " + metrics.writeReport(LOG_DIR));
+        } catch (IOException e) {
+            logErr("Install report not written: " + e.getMessage());
+        }
+        return failed.size();
     }
 
     // ═══════════════════════════════════════════════════════════════════
     //  INIT
     // ═══════════════════════════════════════════════════════════════════
+    static MockUpstream mock;
+
+    /** -Dctbadlion.mock=<fixture dir>: serve every upstream from a local stand-in */
+    static void startMockUpstream() {
+        String dir = System.getProperty("ctbadlion.mock");
+        if (dir == null || dir.isEmpty()) return;
+        try {
+            mock = MockUpstream.fromProperties(Paths.get(dir)).start(Integer.getInteger("ctbadlion.mock.port", 0));
+            Http.mirror = mock.baseUrl();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(mock.stats())));
+        } catch (IOException e) {
+            System.err.println("Mock upstream failed to start: " + e);
+        }
+    }
+
     static void initDirs() {
         String os = System.getProperty("os.name", "").toLowerCase();
         Path home;
-        if (os.contains("win"))
+        if (System.getProperty("ctbadlion.home") != null)
+            home = Paths.get(System.getProperty("ctbadlion.home"));
+        else if (os.contains("win"))
             home = Paths.get(System.getenv("APPDATA"), ".minecraft");
         else if (os.contains("mac"))
             home = Paths.get(System.getProperty("user.home"),
@@ -154,1053 +372,4822 @@ public class CTBadlion extends JFrame {
         NAT_DIR   = home.resolve("natives");
         MODS_DIR  = home.resolve("mods");
         LOG_DIR   = home.resolve("logs");
+        INST_DIR  = home.resolve("instances");
         PROF_FILE = home.resolve("ctbadlion_profiles.properties");
+        MANIFEST_CACHE = home.resolve("ctbadlion_manifest.json");
+        MANIFEST_META  = home.resolve("ctbadlion_manifest.properties");
+        STORE = ArtifactStore.open(storeDir(os), home);
 
         for (Path d : new Path[]{
                 VER_DIR, LIB_DIR,
                 ASS_DIR.resolve("indexes"), ASS_DIR.resolve("objects"),
-                NAT_DIR, MODS_DIR, LOG_DIR
+                NAT_DIR, MODS_DIR, LOG_DIR, INST_DIR
         }) {
             try { Files.createDirectories(d); }
             catch (IOException e) { System.err.println("Dir create fail: " + e); }
         }
     }
 
-    static void applyDarkDefaults() {
-        try { UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName()); }
-        catch (Exception ignored) {}
-
-        Object[][] defs = {
-            {"Panel.background", C_BG}, {"Panel.foreground", C_WHITE},
-            {"Label.foreground", C_WHITE},
-            {"ComboBox.background", C_FIELD}, {"ComboBox.foreground", C_WHITE},
-            {"ComboBox.selectionBackground", C_ACCENT}, {"ComboBox.selectionForeground", C_WHITE},
-            {"ComboBox.buttonBackground", C_FIELD}, {"ComboBox.buttonDarkShadow", C_BORDER},
-            {"ComboBox.buttonHighlight", C_HOVER}, {"ComboBox.buttonShadow", C_BORDER},
-            {"List.background", C_POPUP}, {"List.foreground", C_WHITE},
-            {"List.selectionBackground", C_ACCENT}, {"List.selectionForeground", C_WHITE},
-            {"ScrollBar.background", C_BG}, {"ScrollBar.thumb", C_HOVER},
-            {"ScrollBar.track", C_BG}, {"ScrollBar.width", 10},
-            {"ScrollPane.background", C_BG},
-            {"TextField.background", C_FIELD}, {"TextField.foreground", C_WHITE},
-            {"TextField.caretForeground", C_WHITE},
-            {"TextArea.background", C_CONSOLE}, {"TextArea.foreground", C_CON_TEXT},
-            {"ToolTip.background", C_POPUP}, {"ToolTip.foreground", C_WHITE},
-            {"OptionPane.background", C_BG}, {"OptionPane.foreground", C_WHITE},
-            {"OptionPane.messageForeground", C_WHITE},
-            {"Button.background", C_FIELD}, {"Button.foreground", C_WHITE},
-            {"ProgressBar.background", C_FIELD}, {"ProgressBar.foreground", C_ACCENT},
-            {"PopupMenu.background", C_POPUP}, {"PopupMenu.foreground", C_WHITE},
-            {"PopupMenu.border", BorderFactory.createLineBorder(C_BORDER)},
-            {"MenuItem.background", C_POPUP}, {"MenuItem.foreground", C_WHITE},
-            {"MenuItem.selectionBackground", C_ACCENT}, {"MenuItem.selectionForeground", C_WHITE},
-            {"Viewport.background", C_BG},
-            {"Separator.foreground", C_BORDER}, {"Separator.background", C_BG},
-            {"CheckBox.background", C_BG}, {"CheckBox.foreground", C_WHITE},
-            {"CheckBox.focus", C_BG},
-            {"TabbedPane.background", C_BG}, {"TabbedPane.foreground", C_WHITE},
-        };
-        for (Object[] d : defs) UIManager.put(d[0], d[1]);
+    static Path storeDir(String os) {
+        String prop = System.getProperty("ctbadlion.store", "off");
+        if (prop.isEmpty() || "off".equalsIgnoreCase(prop)) return null;
+        if (!"default".equalsIgnoreCase(prop)) return Paths.get(prop);
+        if (os.contains("win") && System.getenv("LOCALAPPDATA") != null)
+            return Paths.get(System.getenv("LOCALAPPDATA"), APP, "store");
+        if (os.contains("mac"))
+            return Paths.get(System.getProperty("user.home"), "Library", "Application Support", APP, "store");
+        String xdg = System.getenv("XDG_DATA_HOME");
+        return (xdg != null && !xdg.isEmpty() ? Paths.get(xdg)
+                : Paths.get(System.getProperty("user.home"), ".local", "share")).resolve(APP.toLowerCase()).resolve("store");
     }
 
     // ═══════════════════════════════════════════════════════════════════
-    //  CONSTRUCTOR & GUI ASSEMBLY
+    //  CONSTRUCTION
     // ═══════════════════════════════════════════════════════════════════
+    /** With a window; EDT only */
     CTBadlion() {
-        setTitle(APP + " v" + VER + " — Java Edition");
-        setSize(980, 650);
-        setMinimumSize(new Dimension(860, 560));
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-        setLocationRelativeTo(null);
-        setLayout(new BorderLayout(0, 0));
-        getContentPane().setBackground(C_BG);
-
-        add(buildSidebar(), BorderLayout.WEST);
-
-        JPanel main = new JPanel(new BorderLayout(0, 0));
-        main.setBackground(C_BG);
-        main.add(buildContentArea(), BorderLayout.CENTER);
-        add(main, BorderLayout.CENTER);
-
-        loadProfile();
-    }
-
-    // ───────── Sidebar ─────────
-    JPanel buildSidebar() {
-        sidebarPanel = new JPanel();
-        sidebarPanel.setLayout(new BoxLayout(sidebarPanel, BoxLayout.Y_AXIS));
-        sidebarPanel.setBackground(C_SIDEBAR);
-        sidebarPanel.setPreferredSize(new Dimension(200, 0));
-        sidebarPanel.setBorder(BorderFactory.createMatteBorder(0, 0, 0, 1, C_BORDER));
-
-        sidebarPanel.add(Box.createVerticalStrut(24));
-
-        JLabel logo = centeredLabel("CT BADLION", new Font("Segoe UI", Font.BOLD, 22), C_ACCENT);
-        sidebarPanel.add(logo);
-        sidebarPanel.add(Box.createVerticalStrut(4));
-
-        JLabel sub = centeredLabel("v" + VER + " • FOSS", new Font("Consolas", Font.PLAIN, 10), C_DIM);
-        sidebarPanel.add(sub);
-        sidebarPanel.add(Box.createVerticalStrut(36));
-
-        addSideBtn("\u25B6  PLAY",     "play",     true);
-        addSideBtn("\u2699  SETTINGS", "settings", false);
-        addSideBtn("\u2630  CONSOLE",  "console",  false);
-        addSideBtn("\u24D8  ABOUT",    "about",    false);
-
-        sidebarPanel.add(Box.createVerticalGlue());
-
-        JLabel ver = centeredLabel("MIT License • Team Flames", new Font("Segoe UI", Font.PLAIN, 9), C_DIM);
-        sidebarPanel.add(ver);
-        sidebarPanel.add(Box.createVerticalStrut(16));
-
-        return sidebarPanel;
-    }
-
-    JLabel centeredLabel(String text, Font font, Color fg) {
-        JLabel l = new JLabel(text, JLabel.CENTER);
-        l.setFont(font);
-        l.setForeground(fg);
-        l.setAlignmentX(Component.CENTER_ALIGNMENT);
-        return l;
-    }
-
-    void addSideBtn(String title, String card, boolean active) {
-        JButton btn = new JButton(title);
-        btn.setMaximumSize(new Dimension(200, 42));
-        btn.setPreferredSize(new Dimension(200, 42));
-        btn.setFocusPainted(false);
-        btn.setBorderPainted(false);
-        btn.setHorizontalAlignment(SwingConstants.LEFT);
-        btn.setBorder(BorderFactory.createEmptyBorder(0, 20, 0, 0));
-        btn.setBackground(active ? C_SIDEBAR_SEL : C_SIDEBAR);
-        btn.setForeground(active ? C_WHITE : C_GREY);
-        btn.setFont(new Font("Segoe UI", Font.BOLD, 13));
-        btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-        btn.putClientProperty("card", card);
-        btn.addMouseListener(new MouseAdapter() {
-            public void mouseEntered(MouseEvent e) {
-                if (!btn.getBackground().equals(C_SIDEBAR_SEL))
-                    btn.setBackground(C_SIDEBAR_HI);
-            }
-            public void mouseExited(MouseEvent e) {
-                if (!btn.getBackground().equals(C_SIDEBAR_SEL))
-                    btn.setBackground(C_SIDEBAR);
-            }
-        });
-        btn.addActionListener(e -> switchCard(card, btn));
-        sidebarPanel.add(btn);
-    }
-
-    void switchCard(String name, JButton active) {
-        contentLay.show(contentCards, name);
-        curNav = name;
-        for (Component c : sidebarPanel.getComponents()) {
-            if (c instanceof JButton) {
-                c.setBackground(C_SIDEBAR);
-                c.setForeground(C_GREY);
-            }
-        }
-        active.setBackground(C_SIDEBAR_SEL);
-        active.setForeground(C_WHITE);
-    }
-
-    // ───────── Content Cards ─────────
-    JPanel buildContentArea() {
-        contentLay = new CardLayout();
-        contentCards = new JPanel(contentLay);
-        contentCards.setBackground(C_BG);
-
-        contentCards.add(buildPlayCard(),     "play");
-        contentCards.add(buildSettingsCard(), "settings");
-        contentCards.add(buildConsoleCard(),  "console");
-        contentCards.add(buildAboutCard(),    "about");
-
-        return contentCards;
-    }
-
-    // ───────── PLAY Card ─────────
-    JPanel buildPlayCard() {
-        JPanel p = new JPanel(new BorderLayout());
-        p.setBackground(C_BG);
-
-        // Center splash
-        JPanel center = new JPanel(new GridBagLayout());
-        center.setBackground(C_BG);
-        JPanel splash = new JPanel();
-        splash.setLayout(new BoxLayout(splash, BoxLayout.Y_AXIS));
-        splash.setBackground(C_BG);
-
-        JLabel h1 = centeredLabel("READY TO LAUNCH", new Font("Segoe UI", Font.BOLD, 36), C_WHITE);
-        splash.add(h1);
-        splash.add(Box.createVerticalStrut(8));
-        JLabel h2 = centeredLabel("Select a version and hit LAUNCH",
-                new Font("Segoe UI", Font.PLAIN, 14), C_DIM);
-        splash.add(h2);
-        center.add(splash);
-        p.add(center, BorderLayout.CENTER);
-
-        // Bottom bar
-        JPanel bottom = new JPanel(new BorderLayout(0, 0));
-        bottom.setBackground(C_TOPBAR);
-        bottom.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createMatteBorder(1, 0, 0, 0, C_BORDER),
-                BorderFactory.createEmptyBorder(12, 20, 12, 20)));
-
-        JPanel controls = new JPanel(new GridLayout(2, 1, 4, 6));
-        controls.setBackground(C_TOPBAR);
-
-        // Row 1: Version + Mods
-        JPanel row1 = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
-        row1.setBackground(C_TOPBAR);
-
-        ddVersion = new DarkDropdown();
-        ddVersion.setPreferredSize(new Dimension(240, 28));
-        row1.add(ddVersion);
-
-        cbFabric = darkCheck("Fabric", "Auto-install Fabric Loader for selected version");
-        row1.add(cbFabric);
-
-        cbFabOpt = darkCheck("Fab. Optimized", "Install Fabulously Optimized modpack (requires Fabric)");
-        cbFabOpt.addActionListener(e -> {
-            if (cbFabOpt.isSelected()) cbFabric.setSelected(true);
-        });
-        row1.add(cbFabOpt);
-
-        row1.add(Box.createHorizontalStrut(12));
-        lblStatus = new JLabel("Idle");
-        lblStatus.setForeground(C_DIM);
-        lblStatus.setFont(new Font("Segoe UI", Font.PLAIN, 11));
-        row1.add(lblStatus);
-
-        lblProgress = new JLabel("");
-        lblProgress.setForeground(C_GREY);
-        lblProgress.setFont(new Font("Segoe UI", Font.PLAIN, 11));
-        row1.add(lblProgress);
-
-        controls.add(row1);
-
-        // Row 2: User + RAM
-        JPanel row2 = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
-        row2.setBackground(C_TOPBAR);
-
-        row2.add(dimLabel("User:"));
-        tfUser = darkField("Player", 110, 26);
-        row2.add(tfUser);
-
-        row2.add(dimLabel("RAM (MB):"));
-        tfRam = darkField("4096", 60, 26);
-        row2.add(tfRam);
-
-        controls.add(row2);
-        bottom.add(controls, BorderLayout.CENTER);
-
-        // Launch button
-        btnPlay = new JButton("LAUNCH");
-        btnPlay.setPreferredSize(new Dimension(140, 58));
-        btnPlay.setBackground(C_ACCENT);
-        btnPlay.setForeground(C_WHITE);
-        btnPlay.setFont(new Font("Segoe UI", Font.BOLD, 18));
-        btnPlay.setBorder(BorderFactory.createEmptyBorder());
-        btnPlay.setFocusPainted(false);
-        btnPlay.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-        btnPlay.addActionListener(e -> onPlayClick());
-        btnPlay.addMouseListener(new MouseAdapter() {
-            public void mouseEntered(MouseEvent e) {
-                if (btnPlay.isEnabled()) btnPlay.setBackground(C_ACCENT_HI);
-            }
-            public void mouseExited(MouseEvent e) {
-                if (btnPlay.isEnabled()) btnPlay.setBackground(C_ACCENT);
-            }
-        });
-        bottom.add(btnPlay, BorderLayout.EAST);
-
-        // Progress
-        progBar = new JProgressBar(0, 100);
-        progBar.setPreferredSize(new Dimension(0, 3));
-        progBar.setBorderPainted(false);
-        progBar.setBackground(C_TOPBAR);
-        progBar.setForeground(C_ACCENT);
-        progBar.setValue(0);
-        bottom.add(progBar, BorderLayout.SOUTH);
-
-        p.add(bottom, BorderLayout.SOUTH);
-        return p;
-    }
-
-    // ───────── SETTINGS Card ─────────
-    JPanel buildSettingsCard() {
-        JPanel p = new JPanel(new BorderLayout(0, 16));
-        p.setBackground(C_BG);
-        p.setBorder(BorderFactory.createEmptyBorder(24, 28, 24, 28));
-
-        JLabel title = new JLabel("Settings");
-        title.setFont(new Font("Segoe UI", Font.BOLD, 22));
-        title.setForeground(C_WHITE);
-        p.add(title, BorderLayout.NORTH);
-
-        JPanel grid = new JPanel(new GridBagLayout());
-        grid.setBackground(C_BG);
-        GridBagConstraints gc = new GridBagConstraints();
-        gc.insets = new Insets(8, 4, 8, 12);
-        gc.anchor = GridBagConstraints.WEST;
-
-        int row = 0;
-
-        // Java path
-        gc.gridx = 0; gc.gridy = row;
-        grid.add(dimLabel("Java Path:"), gc);
-        gc.gridx = 1; gc.fill = GridBagConstraints.HORIZONTAL; gc.weightx = 1;
-        tfJavaPath = darkField(getDefaultJavaPath(), 300, 26);
-        grid.add(tfJavaPath, gc);
-        gc.fill = GridBagConstraints.NONE; gc.weightx = 0;
-        row++;
-
-        // Show snapshots
-        gc.gridx = 0; gc.gridy = row;
-        grid.add(dimLabel("Show Snapshots:"), gc);
-        gc.gridx = 1;
-        cbSnapshots = darkCheck("Include snapshot versions", null);
-        cbSnapshots.addActionListener(e -> refreshVersionList());
-        grid.add(cbSnapshots, gc);
-        row++;
-
-        // Fullscreen
-        gc.gridx = 0; gc.gridy = row;
-        grid.add(dimLabel("Fullscreen:"), gc);
-        gc.gridx = 1;
-        cbFullscreen = darkCheck("Launch in fullscreen mode", null);
-        grid.add(cbFullscreen, gc);
-        row++;
-
-        // Game directory
-        gc.gridx = 0; gc.gridy = row;
-        grid.add(dimLabel("Game Dir:"), gc);
-        gc.gridx = 1;
-        JLabel dirLabel = new JLabel(ROOT.toString());
-        dirLabel.setForeground(C_GREY);
-        dirLabel.setFont(new Font("Consolas", Font.PLAIN, 11));
-        grid.add(dirLabel, gc);
-        row++;
-
-        // Mods directory
-        gc.gridx = 0; gc.gridy = row;
-        grid.add(dimLabel("Mods Dir:"), gc);
-        gc.gridx = 1;
-        JLabel modsLabel = new JLabel(MODS_DIR.toString());
-        modsLabel.setForeground(C_GREY);
-        modsLabel.setFont(new Font("Consolas", Font.PLAIN, 11));
-        grid.add(modsLabel, gc);
-        row++;
-
-        // Open folders
-        gc.gridx = 0; gc.gridy = row;
-        JButton btnOpenRoot = darkBtn("Open Game Dir");
-        btnOpenRoot.addActionListener(e -> openDir(ROOT));
-        grid.add(btnOpenRoot, gc);
-
-        gc.gridx = 1;
-        JButton btnOpenMods = darkBtn("Open Mods Dir");
-        btnOpenMods.addActionListener(e -> openDir(MODS_DIR));
-        grid.add(btnOpenMods, gc);
-
-        p.add(grid, BorderLayout.CENTER);
-        return p;
-    }
-
-    // ───────── CONSOLE Card ─────────
-    JPanel buildConsoleCard() {
-        JPanel p = new JPanel(new BorderLayout(0, 12));
-        p.setBackground(C_BG);
-        p.setBorder(BorderFactory.createEmptyBorder(24, 28, 24, 28));
-
-        JPanel header = new JPanel(new BorderLayout());
-        header.setBackground(C_BG);
-        JLabel title = new JLabel("Console Output");
-        title.setFont(new Font("Segoe UI", Font.BOLD, 22));
-        title.setForeground(C_WHITE);
-        header.add(title, BorderLayout.WEST);
-
-        JButton btnClear = darkBtn("Clear");
-        btnClear.addActionListener(e -> taLog.setText(""));
-        header.add(btnClear, BorderLayout.EAST);
-        p.add(header, BorderLayout.NORTH);
-
-        taLog = new JTextArea();
-        taLog.setEditable(false);
-        taLog.setFont(new Font("Consolas", Font.PLAIN, 12));
-        taLog.setBackground(C_CONSOLE);
-        taLog.setForeground(C_CON_TEXT);
-        taLog.setCaretColor(C_CON_TEXT);
-        JScrollPane sp = new JScrollPane(taLog);
-        sp.setBorder(BorderFactory.createLineBorder(C_BORDER));
-        sp.getVerticalScrollBar().setUnitIncrement(16);
-        p.add(sp, BorderLayout.CENTER);
-
-        return p;
-    }
-
-    // ───────── ABOUT Card ─────────
-    JPanel buildAboutCard() {
-        JPanel p = new JPanel(new GridBagLayout());
-        p.setBackground(C_BG);
-
-        JPanel box = new JPanel();
-        box.setLayout(new BoxLayout(box, BoxLayout.Y_AXIS));
-        box.setBackground(C_BG);
-
-        box.add(centeredLabel("CTBadlion", new Font("Segoe UI", Font.BOLD, 32), C_ACCENT));
-        box.add(Box.createVerticalStrut(6));
-        box.add(centeredLabel("Version " + VER, new Font("Segoe UI", Font.PLAIN, 14), C_GREY));
-        box.add(Box.createVerticalStrut(20));
-        box.add(centeredLabel("Open-source Minecraft Java Edition launcher",
-                new Font("Segoe UI", Font.PLAIN, 13), C_DIM));
-        box.add(centeredLabel("with Fabric + Fabulously Optimized support.",
-                new Font("Segoe UI", Font.PLAIN, 13), C_DIM));
-        box.add(Box.createVerticalStrut(24));
-        box.add(centeredLabel("Made by Team Flames / Samsoft / Flames Co.",
-                new Font("Segoe UI", Font.BOLD, 12), C_GREY));
-        box.add(Box.createVerticalStrut(8));
-        box.add(centeredLabel("Licensed under MIT — Free and Open Source Software",
-                new Font("Segoe UI", Font.PLAIN, 11), C_DIM));
-        box.add(Box.createVerticalStrut(30));
-        box.add(centeredLabel("Badlion-inspired aesthetic • Not affiliated with Mojang or Badlion",
-                new Font("Segoe UI", Font.ITALIC, 10), C_DIM));
-
-        p.add(box);
-        return p;
+        headless = false;
+        ui = new Window();
     }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  HELPER UI FACTORIES
-    // ═══════════════════════════════════════════════════════════════════
-    JLabel dimLabel(String text) {
-        JLabel l = new JLabel(text);
-        l.setForeground(C_DIM);
-        l.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-        return l;
-    }
-
-    JTextField darkField(String text, int w, int h) {
-        JTextField f = new JTextField(text);
-        f.setPreferredSize(new Dimension(w, h));
-        f.setBackground(C_FIELD);
-        f.setForeground(C_WHITE);
-        f.setCaretColor(C_WHITE);
-        f.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(C_BORDER),
-                BorderFactory.createEmptyBorder(2, 6, 2, 6)));
-        return f;
-    }
-
-    JCheckBox darkCheck(String text, String tooltip) {
-        JCheckBox cb = new JCheckBox(text);
-        cb.setBackground(C_TOPBAR);
-        cb.setForeground(C_WHITE);
-        cb.setFocusPainted(false);
-        if (tooltip != null) cb.setToolTipText(tooltip);
-        return cb;
-    }
-
-    JButton darkBtn(String text) {
-        JButton b = new JButton(text);
-        b.setBackground(C_FIELD);
-        b.setForeground(C_WHITE);
-        b.setFocusPainted(false);
-        b.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(C_BORDER),
-                BorderFactory.createEmptyBorder(4, 14, 4, 14)));
-        b.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-        b.addMouseListener(new MouseAdapter() {
-            public void mouseEntered(MouseEvent e) { b.setBackground(C_HOVER); }
-            public void mouseExited(MouseEvent e) { b.setBackground(C_FIELD); }
-        });
-        return b;
+    /** Engine only: no window, EDT or look-and-feel; log and progress go to stdout */
+    private CTBadlion(boolean headless) {
+        this.headless = headless;
+        ui = null;
     }
 
     // ═══════════════════════════════════════════════════════════════════
-    //  MANIFEST FETCHING & VERSION LIST
+    //  LAUNCHER WINDOW
     // ═══════════════════════════════════════════════════════════════════
-    void fetchManifest() {
-        setStatus("Fetching versions...");
-        executor.submit(() -> {
-            try {
-                String json = httpGet(MANIFEST_URL);
-                parseManifest(json);
-                SwingUtilities.invokeLater(() -> {
-                    refreshVersionList();
-                    setStatus("Ready — " + allVersions.size() + " versions loaded");
-                });
-            } catch (Exception e) {
-                logErr("Manifest fetch failed: " + e.getMessage());
-                setStatus("Offline — no manifest");
-                // Try to find locally cached versions
-                scanLocalVersions();
-            }
-        });
-    }
+    /**
+     * The Swing front end: every widget and every method that names an AWT
+     * or Swing type lives here. The engine reaches it only through the hooks
+     * below, behind a null check, so a headless run never loads the class —
+     * and with it no toolkit, look-and-feel or Swing class at all. EDT only
+     * unless a method says otherwise.
+     */
+    final class Window implements Palette {
+        final JFrame   frame;
+        JTextField     tfUser, tfRam, tfJavaPath, tfInstance;
+        DarkDropdown   ddVersion;
+        JCheckBox      cbFabric, cbFabOpt, cbSnapshots, cbFullscreen;
+        JTextArea      taLog;
+        BoundedConsoleDocument consoleDoc;
+        ConsoleView    launcherView;
+        JTabbedPane    consoleTabs;
+        JButton        btnPlay;
+        JProgressBar   progBar;
+        JLabel         lblStatus, lblProgress;
+        JPanel         contentCards, sidebarPanel;
+        CardLayout     contentLay;
+        String         curNav = "play";
+        CancelToken    launchToken;     // of the launch being prepared
+        // The game whose stats line is on screen, if any; read by the sampler
+        volatile GameProcess statsShown;
+        // The dropdown's rows: allVersions minus snapshots unless they are shown
+        final List<String[]> dispVersions = Collections.synchronizedList(new ArrayList<>());
+        final Map<GameProcess, GameTab> gameTabs = new HashMap<>();
+
+        Window() {
+            applyDarkDefaults();
+            frame = new JFrame(APP + " v" + VER + " — Java Edition");
+            frame.setSize(980, 650);
+            frame.setMinimumSize(new Dimension(860, 560));
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setLocationRelativeTo(null);
+            frame.setLayout(new BorderLayout(0, 0));
+            frame.getContentPane().setBackground(C_BG);
+
+            frame.add(buildSidebar(), BorderLayout.WEST);
+
+            JPanel main = new JPanel(new BorderLayout(0, 0));
+            main.setBackground(C_BG);
+            main.add(buildContentArea(), BorderLayout.CENTER);
+            frame.add(main, BorderLayout.CENTER);
+
+            loadProfile();
+            launcherView.start();
+            consoleTabs.addChangeListener(e -> updateStatsShown());
+            frame.addWindowStateListener(e -> updateStatsShown());
+        }
 
-    void parseManifest(String json) {
-        allVersions.clear();
-        // Mojang manifest: {"id":"X","type":"Y","url":"Z","time":...,"releaseTime":...}
-        // We match all three fields in order
-        Pattern p = Pattern.compile(
-                "\\{\\s*\"id\"\\s*:\\s*\"([^\"]+)\"\\s*," +
-                "\\s*\"type\"\\s*:\\s*\"([^\"]+)\"\\s*," +
-                "\\s*\"url\"\\s*:\\s*\"([^\"]+)\"");
-        Matcher m = p.matcher(json);
-        while (m.find()) {
-            allVersions.add(new String[]{m.group(1), m.group(2), m.group(3)});
+        /** Shows the window, logs where it runs and starts loading the version list */
+        void open() {
+            frame.setVisible(true);
+            log(APP + " v" + VER + " initialized");
+            log("Root: " + ROOT);
+            if (mock != null) log("Upstream: " + mock.versionCount() + " mock versions at " + mock.baseUrl());
+            log("Java: " + System.getProperty("java.version") + " ("
+                    + System.getProperty("java.vendor") + ")");
+            log("OS:   " + System.getProperty("os.name") + " "
+                    + System.getProperty("os.arch"));
+            log("Tasks: " + TASKS.describe());
+            fetchManifest();
         }
-        log("Parsed " + allVersions.size() + " versions from manifest");
-    }
 
-    void scanLocalVersions() {
-        try {
-            if (!Files.isDirectory(VER_DIR)) return;
-            Files.list(VER_DIR).filter(Files::isDirectory).forEach(dir -> {
-                String id = dir.getFileName().toString();
-                Path jsonFile = dir.resolve(id + ".json");
-                if (Files.exists(jsonFile)) {
-                    allVersions.add(new String[]{id, "local", ""});
-                }
+        // ───────── Look and feel ─────────
+        void applyDarkDefaults() {
+            try { UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName()); }
+            catch (Exception ignored) {}
+
+            Object[][] defs = {
+                {"Panel.background", C_BG}, {"Panel.foreground", C_WHITE},
+                {"Label.foreground", C_WHITE},
+                {"ComboBox.background", C_FIELD}, {"ComboBox.foreground", C_WHITE},
+                {"ComboBox.selectionBackground", C_ACCENT}, {"ComboBox.selectionForeground", C_WHITE},
+                {"ComboBox.buttonBackground", C_FIELD}, {"ComboBox.buttonDarkShadow", C_BORDER},
+                {"ComboBox.buttonHighlight", C_HOVER}, {"ComboBox.buttonShadow", C_BORDER},
+                {"List.background", C_POPUP}, {"List.foreground", C_WHITE},
+                {"List.selectionBackground", C_ACCENT}, {"List.selectionForeground", C_WHITE},
+                {"ScrollBar.background", C_BG}, {"ScrollBar.thumb", C_HOVER},
+                {"ScrollBar.track", C_BG}, {"ScrollBar.width", 10},
+                {"ScrollPane.background", C_BG},
+                {"TextField.background", C_FIELD}, {"TextField.foreground", C_WHITE},
+                {"TextField.caretForeground", C_WHITE},
+                {"TextArea.background", C_CONSOLE}, {"TextArea.foreground", C_CON_TEXT},
+                {"ToolTip.background", C_POPUP}, {"ToolTip.foreground", C_WHITE},
+                {"OptionPane.background", C_BG}, {"OptionPane.foreground", C_WHITE},
+                {"OptionPane.messageForeground", C_WHITE},
+                {"Button.background", C_FIELD}, {"Button.foreground", C_WHITE},
+                {"ProgressBar.background", C_FIELD}, {"ProgressBar.foreground", C_ACCENT},
+                {"PopupMenu.background", C_POPUP}, {"PopupMenu.foreground", C_WHITE},
+                {"PopupMenu.border", BorderFactory.createLineBorder(C_BORDER)},
+                {"MenuItem.background", C_POPUP}, {"MenuItem.foreground", C_WHITE},
+                {"MenuItem.selectionBackground", C_ACCENT}, {"MenuItem.selectionForeground", C_WHITE},
+                {"Viewport.background", C_BG},
+                {"Separator.foreground", C_BORDER}, {"Separator.background", C_BG},
+                {"CheckBox.background", C_BG}, {"CheckBox.foreground", C_WHITE},
+                {"CheckBox.focus", C_BG},
+                {"TabbedPane.background", C_BG}, {"TabbedPane.foreground", C_WHITE},
+            };
+            for (Object[] d : defs) UIManager.put(d[0], d[1]);
+        }
+
+        // ───────── Engine hooks (any thread) ─────────
+        void showStatus(String s) {
+            SwingUtilities.invokeLater(() -> lblStatus.setText(s));
+        }
+
+        /** text null leaves the progress label as it is */
+        void showProgress(int pct, String text) {
+            SwingUtilities.invokeLater(() -> {
+                progBar.setValue(pct);
+                if (text != null) lblProgress.setText(text);
             });
-            if (!allVersions.isEmpty()) {
-                log("Found " + allVersions.size() + " local version(s)");
-                SwingUtilities.invokeLater(this::refreshVersionList);
-            }
-        } catch (Exception e) {
-            logErr("Local scan: " + e.getMessage());
         }
-    }
 
-    void refreshVersionList() {
-        boolean showSnaps = cbSnapshots != null && cbSnapshots.isSelected();
-        dispVersions.clear();
-        synchronized (allVersions) {
-            for (String[] v : allVersions) {
-                if (showSnaps || v[1].equals("release") || v[1].equals("local")) {
-                    dispVersions.add(v);
-                }
-            }
+        void versionsChanged() {
+            SwingUtilities.invokeLater(this::refreshVersionList);
         }
-        ddVersion.updateList();
-    }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  LAUNCH PIPELINE
-    // ═══════════════════════════════════════════════════════════════════
-    void onPlayClick() {
-        if (launching) return;
-        String[] ver = ddVersion.getSelected();
-        if (ver == null) {
-            logErr("No version selected");
-            return;
+        void gameStarted(GameProcess gp) {
+            SwingUtilities.invokeLater(() -> addTab(gp));
         }
-        saveProfile();
-        launching = true;
-        btnPlay.setEnabled(false);
-        btnPlay.setBackground(C_DIM);
-        btnPlay.setText("...");
-        progBar.setValue(0);
 
-        // Switch to console view
-        for (Component c : sidebarPanel.getComponents()) {
-            if (c instanceof JButton && "console".equals(((JButton) c).getClientProperty("card"))) {
-                switchCard("console", (JButton) c);
-                break;
-            }
+        void gamesSampled() {
+            SwingUtilities.invokeLater(() -> {
+                for (Map.Entry<GameProcess, GameTab> e : gameTabs.entrySet()) {
+                    GameProcess gp = e.getKey();
+                    if (games.live.containsKey(gp.proc.pid())) e.getValue().lblStats.setText(gp.stats());
+                }
+            });
         }
 
-        executor.submit(() -> {
-            try {
-                prepareAndLaunch(ver[0], ver[2]);
-            } catch (Exception e) {
-                logErr("Launch failed: " + e.getMessage());
-                e.printStackTrace();
-            } finally {
-                launching = false;
-                SwingUtilities.invokeLater(() -> {
-                    btnPlay.setEnabled(true);
-                    btnPlay.setBackground(C_ACCENT);
-                    btnPlay.setText("LAUNCH");
-                    setStatus("Ready");
-                    progBar.setValue(0);
-                    lblProgress.setText("");
-                });
-            }
-        });
-    }
+        void gameExited(GameProcess gp, int exit) {
+            SwingUtilities.invokeLater(() -> {
+                GameTab t = gameTabs.get(gp);
+                if (t == null) return;
+                int i = consoleTabs.indexOfComponent(t.panel);
+                if (i >= 0) consoleTabs.setTitleAt(i, gp.name + " (exit " + exit + ")");
+                t.lblStats.setText("Exited with code " + exit + " | " + gp.stats());
+                t.btnStop.setText("Close");
+            });
+        }
 
-    void prepareAndLaunch(String verId, String jsonUrl) throws Exception {
-        log("═══ Preparing: " + verId + " ═══");
+        // ───────── Sidebar ─────────
+        JPanel buildSidebar() {
+            sidebarPanel = new JPanel();
+            sidebarPanel.setLayout(new BoxLayout(sidebarPanel, BoxLayout.Y_AXIS));
+            sidebarPanel.setBackground(C_SIDEBAR);
+            sidebarPanel.setPreferredSize(new Dimension(200, 0));
+            sidebarPanel.setBorder(BorderFactory.createMatteBorder(0, 0, 0, 1, C_BORDER));
 
-        // 1 ── Version JSON
-        setStatus("Downloading version JSON...");
-        Path verDir  = VER_DIR.resolve(verId);
-        Path jsonPath = verDir.resolve(verId + ".json");
-        Files.createDirectories(verDir);
+            sidebarPanel.add(Box.createVerticalStrut(24));
 
-        if (!Files.exists(jsonPath)) {
-            if (jsonUrl == null || jsonUrl.isEmpty()) {
-                throw new Exception("No URL for version JSON and not cached locally");
-            }
-            log("Downloading version JSON...");
-            download(jsonUrl, jsonPath, "version JSON");
-        }
-        String verJson = new String(Files.readAllBytes(jsonPath), StandardCharsets.UTF_8);
+            JLabel logo = centeredLabel("CT BADLION", new Font("Segoe UI", Font.BOLD, 22), C_ACCENT);
+            sidebarPanel.add(logo);
+            sidebarPanel.add(Box.createVerticalStrut(4));
 
-        // 2 ── Client JAR
-        setStatus("Checking client JAR...");
-        Path clientJar = verDir.resolve(verId + ".jar");
-        if (!Files.exists(clientJar)) {
-            String jarUrl = jsonExtract(verJson,
-                    "\"client\"\\s*:\\s*\\{[^}]*?\"url\"\\s*:\\s*\"([^\"]+)\"");
-            if (jarUrl != null) {
-                log("Downloading client JAR...");
-                download(jarUrl, clientJar, "client JAR");
-            } else {
-                throw new Exception("Could not find client JAR URL in version JSON");
-            }
-        }
+            JLabel sub = centeredLabel("v" + VER + " • FOSS", new Font("Consolas", Font.PLAIN, 10), C_DIM);
+            sidebarPanel.add(sub);
+            sidebarPanel.add(Box.createVerticalStrut(36));
 
-        // 3 ── Libraries
-        setStatus("Resolving libraries...");
-        StringBuilder classpath = new StringBuilder();
-        downloadLibraries(verJson, classpath);
-        classpath.append(clientJar.toString());
+            addSideBtn("\u25B6  PLAY",     "play",     true);
+            addSideBtn("\u2699  SETTINGS", "settings", false);
+            addSideBtn("\u2630  CONSOLE",  "console",  false);
+            addSideBtn("\u24D8  ABOUT",    "about",    false);
 
-        // 4 ── Natives
-        setStatus("Extracting natives...");
-        Path nativesDir = NAT_DIR.resolve(verId);
-        Files.createDirectories(nativesDir);
-        extractNatives(verJson, nativesDir);
+            sidebarPanel.add(Box.createVerticalGlue());
 
-        // 5 ── Asset Index
-        setStatus("Downloading assets...");
-        String assetIndexId = jsonExtract(verJson,
-                "\"assetIndex\"\\s*:\\s*\\{[^}]*?\"id\"\\s*:\\s*\"([^\"]+)\"");
-        if (assetIndexId == null) assetIndexId = "legacy";
-        downloadAssetIndex(verJson, assetIndexId);
+            JLabel ver = centeredLabel("MIT License • Team Flames", new Font("Segoe UI", Font.PLAIN, 9), C_DIM);
+            sidebarPanel.add(ver);
+            sidebarPanel.add(Box.createVerticalStrut(16));
 
-        // 6 ── Fabric (if checked)
-        if (cbFabric.isSelected()) {
-            setStatus("Installing Fabric...");
-            installFabric(verId, classpath);
+            return sidebarPanel;
         }
 
-        // 7 ── Fabulously Optimized mods
-        if (cbFabOpt.isSelected()) {
-            setStatus("Checking FO mods...");
-            log("Fabulously Optimized: ensure mods are in " + MODS_DIR);
-            log("Visit https://modrinth.com/modpack/fabulously-optimized for the latest pack.");
-            // Auto-download is complex (Modrinth pack index → individual mod jars).
-            // We log guidance; a future version can automate this via Modrinth API.
+        JLabel centeredLabel(String text, Font font, Color fg) {
+            JLabel l = new JLabel(text, JLabel.CENTER);
+            l.setFont(font);
+            l.setForeground(fg);
+            l.setAlignmentX(Component.CENTER_ALIGNMENT);
+            return l;
         }
 
-        // 8 ── Build command line
-        setStatus("Launching Minecraft " + verId + "...");
-        List<String> cmd = new ArrayList<>();
-
-        String javaPath = (tfJavaPath != null && !tfJavaPath.getText().trim().isEmpty())
-                ? tfJavaPath.getText().trim() : getDefaultJavaPath();
-        cmd.add(javaPath);
+        void addSideBtn(String title, String card, boolean active) {
+            JButton btn = new JButton(title);
+            btn.setMaximumSize(new Dimension(200, 42));
+            btn.setPreferredSize(new Dimension(200, 42));
+            btn.setFocusPainted(false);
+            btn.setBorderPainted(false);
+            btn.setHorizontalAlignment(SwingConstants.LEFT);
+            btn.setBorder(BorderFactory.createEmptyBorder(0, 20, 0, 0));
+            btn.setBackground(active ? C_SIDEBAR_SEL : C_SIDEBAR);
+            btn.setForeground(active ? C_WHITE : C_GREY);
+            btn.setFont(new Font("Segoe UI", Font.BOLD, 13));
+            btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            btn.putClientProperty("card", card);
+            btn.addMouseListener(new MouseAdapter() {
+                public void mouseEntered(MouseEvent e) {
+                    if (!btn.getBackground().equals(C_SIDEBAR_SEL))
+                        btn.setBackground(C_SIDEBAR_HI);
+                }
+                public void mouseExited(MouseEvent e) {
+                    if (!btn.getBackground().equals(C_SIDEBAR_SEL))
+                        btn.setBackground(C_SIDEBAR);
+                }
+            });
+            btn.addActionListener(e -> switchCard(card, btn));
+            sidebarPanel.add(btn);
+        }
 
-        // macOS LWJGL requirement
-        if (isMac()) {
-            cmd.add("-XstartOnFirstThread");
-            log("macOS: added -XstartOnFirstThread");
+        void switchCard(String name, JButton active) {
+            contentLay.show(contentCards, name);
+            curNav = name;
+            for (Component c : sidebarPanel.getComponents()) {
+                if (c instanceof JButton) {
+                    c.setBackground(C_SIDEBAR);
+                    c.setForeground(C_GREY);
+                }
+            }
+            active.setBackground(C_SIDEBAR_SEL);
+            active.setForeground(C_WHITE);
+            updateStatsShown();
         }
 
-        // Java 9+ module flags for modern MC/LWJGL
-        int javaVer = getJavaMajorVersion();
-        if (javaVer >= 9) {
-            cmd.add("--add-opens=java.base/java.net=ALL-UNNAMED");
-            cmd.add("--add-opens=java.base/sun.nio.ch=ALL-UNNAMED");
-            cmd.add("--add-opens=java.base/java.lang=ALL-UNNAMED");
-            cmd.add("--add-opens=java.base/java.lang.reflect=ALL-UNNAMED");
-            cmd.add("--add-opens=java.base/java.util=ALL-UNNAMED");
-            cmd.add("--add-exports=java.base/sun.security.action=ALL-UNNAMED");
+        /** The selected game tab, while the console card shows and the window is not minimised */
+        void updateStatsShown() {
+            GameProcess shown = null;
+            if (curNav.equals("console") && (frame.getExtendedState() & Frame.ICONIFIED) == 0) {
+                for (Map.Entry<GameProcess, GameTab> e : gameTabs.entrySet()) {
+                    if (e.getValue().panel == consoleTabs.getSelectedComponent()) shown = e.getKey();
+                }
+            }
+            statsShown = shown;
         }
 
-        cmd.add("-Xmx" + tfRam.getText().trim() + "M");
-        cmd.add("-Xms256M");
-        cmd.add("-Djava.library.path=" + nativesDir.toString());
-        cmd.add("-Dminecraft.launcher.brand=" + APP);
-        cmd.add("-Dminecraft.launcher.version=" + VER);
-        cmd.add("-cp");
-        cmd.add(classpath.toString());
+        // ───────── Content Cards ─────────
+        JPanel buildContentArea() {
+            contentLay = new CardLayout();
+            contentCards = new JPanel(contentLay);
+            contentCards.setBackground(C_BG);
 
-        // Main class — check for Fabric override
-        String mainClass = jsonExtract(verJson, "\"mainClass\"\\s*:\\s*\"([^\"]+)\"");
-        if (mainClass == null) mainClass = "net.minecraft.client.main.Main";
-        cmd.add(mainClass);
+            contentCards.add(buildPlayCard(),     "play");
+            contentCards.add(buildSettingsCard(), "settings");
+            contentCards.add(buildConsoleCard(),  "console");
+            contentCards.add(buildAboutCard(),    "about");
 
-        // Game arguments
-        String offlineUuid = UUID.nameUUIDFromBytes(
-                ("OfflinePlayer:" + tfUser.getText().trim()).getBytes(StandardCharsets.UTF_8))
-                .toString().replace("-", "");
+            return contentCards;
+        }
 
-        cmd.add("--version");   cmd.add(verId);
-        cmd.add("--gameDir");   cmd.add(ROOT.toString());
-        cmd.add("--assetsDir"); cmd.add(ASS_DIR.toString());
-        cmd.add("--assetIndex"); cmd.add(assetIndexId);
-        cmd.add("--uuid");       cmd.add(offlineUuid);
-        cmd.add("--accessToken"); cmd.add("0");
-        cmd.add("--userType");   cmd.add("legacy");
-        cmd.add("--username");   cmd.add(tfUser.getText().trim());
+        // ───────── PLAY Card ─────────
+        JPanel buildPlayCard() {
+            JPanel p = new JPanel(new BorderLayout());
+            p.setBackground(C_BG);
+
+            // Center splash
+            JPanel center = new JPanel(new GridBagLayout());
+            center.setBackground(C_BG);
+            JPanel splash = new JPanel();
+            splash.setLayout(new BoxLayout(splash, BoxLayout.Y_AXIS));
+            splash.setBackground(C_BG);
+
+            JLabel h1 = centeredLabel("READY TO LAUNCH", new Font("Segoe UI", Font.BOLD, 36), C_WHITE);
+            splash.add(h1);
+            splash.add(Box.createVerticalStrut(8));
+            JLabel h2 = centeredLabel("Select a version and hit LAUNCH",
+                    new Font("Segoe UI", Font.PLAIN, 14), C_DIM);
+            splash.add(h2);
+            center.add(splash);
+            p.add(center, BorderLayout.CENTER);
+
+            // Bottom bar
+            JPanel bottom = new JPanel(new BorderLayout(0, 0));
+            bottom.setBackground(C_TOPBAR);
+            bottom.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createMatteBorder(1, 0, 0, 0, C_BORDER),
+                    BorderFactory.createEmptyBorder(12, 20, 12, 20)));
+
+            JPanel controls = new JPanel(new GridLayout(2, 1, 4, 6));
+            controls.setBackground(C_TOPBAR);
+
+            // Row 1: Version + Mods
+            JPanel row1 = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+            row1.setBackground(C_TOPBAR);
+
+            ddVersion = new DarkDropdown();
+            ddVersion.setPreferredSize(new Dimension(240, 28));
+            row1.add(ddVersion);
+
+            cbFabric = darkCheck("Fabric", "Auto-install Fabric Loader for selected version");
+            row1.add(cbFabric);
+
+            cbFabOpt = darkCheck("Fab. Optimized", "Install Fabulously Optimized modpack (requires Fabric)");
+            cbFabOpt.addActionListener(e -> {
+                if (cbFabOpt.isSelected()) cbFabric.setSelected(true);
+            });
+            row1.add(cbFabOpt);
+
+            row1.add(Box.createHorizontalStrut(12));
+            lblStatus = new JLabel("Idle");
+            lblStatus.setForeground(C_DIM);
+            lblStatus.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+            row1.add(lblStatus);
+
+            lblProgress = new JLabel("");
+            lblProgress.setForeground(C_GREY);
+            lblProgress.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+            row1.add(lblProgress);
+
+            controls.add(row1);
+
+            // Row 2: User + RAM
+            JPanel row2 = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+            row2.setBackground(C_TOPBAR);
+
+            row2.add(dimLabel("User:"));
+            tfUser = darkField("Player", 110, 26);
+            row2.add(tfUser);
+
+            row2.add(dimLabel("RAM (MB):"));
+            tfRam = darkField("4096", 60, 26);
+            row2.add(tfRam);
+
+            row2.add(dimLabel("Instance:"));
+            tfInstance = darkField("", 110, 26);
+            tfInstance.setToolTipText("Empty: play in " + ROOT + ". A name: play in its own folder under "
+                    + INST_DIR + " with its own mods and settings");
+            tfInstance.addActionListener(e -> applyInstanceToUi());
+            tfInstance.addFocusListener(new FocusAdapter() {
+                public void focusLost(FocusEvent e) {
+                    applyInstanceToUi();
+                }
+            });
+            row2.add(tfInstance);
+
+            controls.add(row2);
+            bottom.add(controls, BorderLayout.CENTER);
+
+            // Launch button
+            btnPlay = new JButton("LAUNCH");
+            btnPlay.setPreferredSize(new Dimension(140, 58));
+            btnPlay.setBackground(C_ACCENT);
+            btnPlay.setForeground(C_WHITE);
+            btnPlay.setFont(new Font("Segoe UI", Font.BOLD, 18));
+            btnPlay.setBorder(BorderFactory.createEmptyBorder());
+            btnPlay.setFocusPainted(false);
+            btnPlay.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            btnPlay.addActionListener(e -> onPlayClick());
+            btnPlay.addMouseListener(new MouseAdapter() {
+                public void mouseEntered(MouseEvent e) {
+                    if (btnPlay.isEnabled()) btnPlay.setBackground(launching ? C_GREY : C_ACCENT_HI);
+                }
+                public void mouseExited(MouseEvent e) {
+                    if (btnPlay.isEnabled()) btnPlay.setBackground(launching ? C_DIM : C_ACCENT);
+                }
+            });
+            bottom.add(btnPlay, BorderLayout.EAST);
+
+            // Progress
+            progBar = new JProgressBar(0, 100);
+            progBar.setPreferredSize(new Dimension(0, 3));
+            progBar.setBorderPainted(false);
+            progBar.setBackground(C_TOPBAR);
+            progBar.setForeground(C_ACCENT);
+            progBar.setValue(0);
+            bottom.add(progBar, BorderLayout.SOUTH);
+
+            p.add(bottom, BorderLayout.SOUTH);
+            return p;
+        }
 
-        if (cbFullscreen != null && cbFullscreen.isSelected()) {
-            cmd.add("--fullscreen");
+        // ───────── SETTINGS Card ─────────
+        JPanel buildSettingsCard() {
+            JPanel p = new JPanel(new BorderLayout(0, 16));
+            p.setBackground(C_BG);
+            p.setBorder(BorderFactory.createEmptyBorder(24, 28, 24, 28));
+
+            JLabel title = new JLabel("Settings");
+            title.setFont(new Font("Segoe UI", Font.BOLD, 22));
+            title.setForeground(C_WHITE);
+            p.add(title, BorderLayout.NORTH);
+
+            JPanel grid = new JPanel(new GridBagLayout());
+            grid.setBackground(C_BG);
+            GridBagConstraints gc = new GridBagConstraints();
+            gc.insets = new Insets(8, 4, 8, 12);
+            gc.anchor = GridBagConstraints.WEST;
+
+            int row = 0;
+
+            // Java path
+            gc.gridx = 0; gc.gridy = row;
+            grid.add(dimLabel("Java Path:"), gc);
+            gc.gridx = 1; gc.fill = GridBagConstraints.HORIZONTAL; gc.weightx = 1;
+            tfJavaPath = darkField(getDefaultJavaPath(), 300, 26);
+            grid.add(tfJavaPath, gc);
+            gc.fill = GridBagConstraints.NONE; gc.weightx = 0;
+            row++;
+
+            // Show snapshots
+            gc.gridx = 0; gc.gridy = row;
+            grid.add(dimLabel("Show Snapshots:"), gc);
+            gc.gridx = 1;
+            cbSnapshots = darkCheck("Include snapshot versions", null);
+            cbSnapshots.addActionListener(e -> refreshVersionList());
+            grid.add(cbSnapshots, gc);
+            row++;
+
+            // Fullscreen
+            gc.gridx = 0; gc.gridy = row;
+            grid.add(dimLabel("Fullscreen:"), gc);
+            gc.gridx = 1;
+            cbFullscreen = darkCheck("Launch in fullscreen mode", null);
+            grid.add(cbFullscreen, gc);
+            row++;
+
+            // Game directory
+            gc.gridx = 0; gc.gridy = row;
+            grid.add(dimLabel("Game Dir:"), gc);
+            gc.gridx = 1;
+            JLabel dirLabel = new JLabel(ROOT.toString());
+            dirLabel.setForeground(C_GREY);
+            dirLabel.setFont(new Font("Consolas", Font.PLAIN, 11));
+            grid.add(dirLabel, gc);
+            row++;
+
+            // Mods directory
+            gc.gridx = 0; gc.gridy = row;
+            grid.add(dimLabel("Mods Dir:"), gc);
+            gc.gridx = 1;
+            JLabel modsLabel = new JLabel(MODS_DIR.toString());
+            modsLabel.setForeground(C_GREY);
+            modsLabel.setFont(new Font("Consolas", Font.PLAIN, 11));
+            grid.add(modsLabel, gc);
+            row++;
+
+            // Shared store (opt-in)
+            gc.gridx = 0; gc.gridy = row;
+            grid.add(dimLabel("Shared Store:"), gc);
+            gc.gridx = 1;
+            JLabel storeLabel = new JLabel(STORE != null ? STORE.dir.toString()
+                    : "Off — start with -Dctbadlion.store=<dir> to share downloads between game dirs");
+            storeLabel.setForeground(C_GREY);
+            storeLabel.setFont(new Font("Consolas", Font.PLAIN, 11));
+            grid.add(storeLabel, gc);
+            row++;
+
+            // Open folders
+            gc.gridx = 0; gc.gridy = row;
+            JButton btnOpenRoot = darkBtn("Open Game Dir");
+            btnOpenRoot.addActionListener(e -> openDir(ROOT));
+            grid.add(btnOpenRoot, gc);
+
+            gc.gridx = 1;
+            JButton btnOpenMods = darkBtn("Open Mods Dir");
+            btnOpenMods.addActionListener(e -> openDir(MODS_DIR));
+            grid.add(btnOpenMods, gc);
+            row++;
+
+            // Verify installation
+            gc.gridx = 0; gc.gridy = row;
+            JButton btnVerify = darkBtn("Verify Files");
+            btnVerify.setToolTipText("Re-hash installed JARs and assets; corrupt files are re-downloaded on next launch");
+            btnVerify.addActionListener(e -> onVerifyClick());
+            grid.add(btnVerify, gc);
+
+            p.add(grid, BorderLayout.CENTER);
+            return p;
         }
 
-        log("Launching with " + cmd.size() + " args");
-        log("Main class: " + mainClass);
+        // ───────── CONSOLE Card ─────────
+        JPanel buildConsoleCard() {
+            JPanel p = new JPanel(new BorderLayout(0, 12));
+            p.setBackground(C_BG);
+            p.setBorder(BorderFactory.createEmptyBorder(24, 28, 24, 28));
+
+            JPanel header = new JPanel(new BorderLayout());
+            header.setBackground(C_BG);
+            JLabel title = new JLabel("Console Output");
+            title.setFont(new Font("Segoe UI", Font.BOLD, 22));
+            title.setForeground(C_WHITE);
+            header.add(title, BorderLayout.WEST);
+
+            // Clears whichever tab is showing: the launcher log or one game's output
+            JButton btnClear = darkBtn("Clear");
+            btnClear.addActionListener(e -> {
+                Object doc = ((JComponent) consoleTabs.getSelectedComponent()).getClientProperty("doc");
+                if (doc instanceof BoundedConsoleDocument) ((BoundedConsoleDocument) doc).clear();
+            });
+            header.add(btnClear, BorderLayout.EAST);
+            p.add(header, BorderLayout.NORTH);
+
+            RollingLogWriter spill = new RollingLogWriter(LOG_DIR, "console", CONSOLE_SPILL_MAX, 3);
+            consoleDoc = new BoundedConsoleDocument(CONSOLE_LINES, spill::offer);
+            taLog = consoleArea(consoleDoc);
+            launcherView = new ConsoleView(console, consoleDoc, taLog);
+            JScrollPane sp = consoleScroll(taLog);
+            sp.putClientProperty("doc", consoleDoc);
+
+            consoleTabs = new JTabbedPane();
+            consoleTabs.setBackground(C_BG);
+            consoleTabs.setForeground(C_WHITE);
+            consoleTabs.addTab("Launcher", sp);
+            p.add(consoleTabs, BorderLayout.CENTER);
+
+            return p;
+        }
 
-        ProcessBuilder pb = new ProcessBuilder(cmd);
-        pb.directory(ROOT.toFile());
-        pb.redirectErrorStream(true);
-        Process proc = pb.start();
+        JTextArea consoleArea(BoundedConsoleDocument doc) {
+            JTextArea ta = new JTextArea(doc);
+            ta.setEditable(false);
+            ta.setFont(new Font("Consolas", Font.PLAIN, 12));
+            ta.setBackground(C_CONSOLE);
+            ta.setForeground(C_CON_TEXT);
+            ta.setCaretColor(C_CON_TEXT);
+            return ta;
+        }
 
-        // Stream MC output to console
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                log("[MC] " + line);
-            }
+        JScrollPane consoleScroll(JTextArea ta) {
+            JScrollPane sp = new JScrollPane(ta);
+            sp.setBorder(BorderFactory.createLineBorder(C_BORDER));
+            sp.getVerticalScrollBar().setUnitIncrement(16);
+            return sp;
         }
 
-        int exit = proc.waitFor();
-        log("Minecraft exited with code " + exit);
-    }
+        // ───────── ABOUT Card ─────────
+        JPanel buildAboutCard() {
+            JPanel p = new JPanel(new GridBagLayout());
+            p.setBackground(C_BG);
+
+            JPanel box = new JPanel();
+            box.setLayout(new BoxLayout(box, BoxLayout.Y_AXIS));
+            box.setBackground(C_BG);
+
+            box.add(centeredLabel("CTBadlion", new Font("Segoe UI", Font.BOLD, 32), C_ACCENT));
+            box.add(Box.createVerticalStrut(6));
+            box.add(centeredLabel("Version " + VER, new Font("Segoe UI", Font.PLAIN, 14), C_GREY));
+            box.add(Box.createVerticalStrut(20));
+            box.add(centeredLabel("Open-source Minecraft Java Edition launcher",
+                    new Font("Segoe UI", Font.PLAIN, 13), C_DIM));
+            box.add(centeredLabel("with Fabric + Fabulously Optimized support.",
+                    new Font("Segoe UI", Font.PLAIN, 13), C_DIM));
+            box.add(Box.createVerticalStrut(24));
+            box.add(centeredLabel("Made by Team Flames / Samsoft / Flames Co.",
+                    new Font("Segoe UI", Font.BOLD, 12), C_GREY));
+            box.add(Box.createVerticalStrut(8));
+            box.add(centeredLabel("Licensed under MIT — Free and Open Source Software",
+                    new Font("Segoe UI", Font.PLAIN, 11), C_DIM));
+            box.add(Box.createVerticalStrut(30));
+            box.add(centeredLabel("Badlion-inspired aesthetic • Not affiliated with Mojang or Badlion",
+                    new Font("Segoe UI", Font.ITALIC, 10), C_DIM));
+
+            p.add(box);
+            return p;
+        }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  LIBRARY DOWNLOADING
-    // ═══════════════════════════════════════════════════════════════════
-    void downloadLibraries(String verJson, StringBuilder classpath) {
-        // Extract "libraries" array entries.
-        // Each library has: name (maven coord), downloads.artifact.path, downloads.artifact.url
-        // We also need to check "rules" for OS filtering.
-        log("Resolving libraries...");
+        // ───────── Helper factories ─────────
+        JLabel dimLabel(String text) {
+            JLabel l = new JLabel(text);
+            l.setForeground(C_DIM);
+            l.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            return l;
+        }
 
-        // Find all artifact entries: path + url pairs
-        Pattern artifactP = Pattern.compile(
-                "\"artifact\"\\s*:\\s*\\{[^}]*?" +
-                "\"path\"\\s*:\\s*\"([^\"]+)\"[^}]*?" +
-                "\"url\"\\s*:\\s*\"([^\"]+)\"", Pattern.DOTALL);
+        JTextField darkField(String text, int w, int h) {
+            JTextField f = new JTextField(text);
+            f.setPreferredSize(new Dimension(w, h));
+            f.setBackground(C_FIELD);
+            f.setForeground(C_WHITE);
+            f.setCaretColor(C_WHITE);
+            f.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createLineBorder(C_BORDER),
+                    BorderFactory.createEmptyBorder(2, 6, 2, 6)));
+            return f;
+        }
 
-        // Also find library name for logging
-        Pattern nameP = Pattern.compile("\"name\"\\s*:\\s*\"([^\"]+)\"");
+        JCheckBox darkCheck(String text, String tooltip) {
+            JCheckBox cb = new JCheckBox(text);
+            cb.setBackground(C_TOPBAR);
+            cb.setForeground(C_WHITE);
+            cb.setFocusPainted(false);
+            if (tooltip != null) cb.setToolTipText(tooltip);
+            return cb;
+        }
 
-        // Split on library boundaries — each library object starts with {"downloads" or {"name"
-        // We'll use a simpler approach: find all artifact path+url in sequence
-        Matcher m = artifactP.matcher(verJson);
-        List<String[]> libs = new ArrayList<>();
-        while (m.find()) {
-            libs.add(new String[]{m.group(1), m.group(2)});
+        JButton darkBtn(String text) {
+            JButton b = new JButton(text);
+            b.setBackground(C_FIELD);
+            b.setForeground(C_WHITE);
+            b.setFocusPainted(false);
+            b.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createLineBorder(C_BORDER),
+                    BorderFactory.createEmptyBorder(4, 14, 4, 14)));
+            b.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            b.addMouseListener(new MouseAdapter() {
+                public void mouseEntered(MouseEvent e) { b.setBackground(C_HOVER); }
+                public void mouseExited(MouseEvent e) { b.setBackground(C_FIELD); }
+            });
+            return b;
         }
-        log("Found " + libs.size() + " library artifacts");
 
-        dlCount.set(0);
-        dlTotal.set(libs.size());
+        // ───────── Version list ─────────
+        void refreshVersionList() {
+            boolean showSnaps = cbSnapshots != null && cbSnapshots.isSelected();
+            dispVersions.clear();
+            synchronized (allVersions) {
+                for (String[] v : allVersions) {
+                    if (showSnaps || v[1].equals("release") || v[1].equals("local")) {
+                        dispVersions.add(v);
+                    }
+                }
+            }
+            ddVersion.updateList();
+        }
 
-        for (String[] lib : libs) {
-            String path = lib[0];
-            String url  = lib[1];
-            Path target = LIB_DIR.resolve(path.replace("/", File.separator));
-            classpath.append(target.toString()).append(File.pathSeparator);
+        // ───────── Launch ─────────
+        void onPlayClick() {
+            if (launching) {
+                cancelLaunch();
+                return;
+            }
+            String[] ver = ddVersion.getSelected();
+            if (ver == null) {
+                logErr("No version selected");
+                return;
+            }
+            saveProfile();
+            LaunchOptions opts;
+            try {
+                opts = optionsFromUi(ver);
+            } catch (IOException e) {
+                logErr(e.getMessage());
+                return;
+            }
+            launching = true;
+            btnPlay.setBackground(C_DIM);
+            btnPlay.setText("CANCEL");
+            progBar.setValue(0);
+
+            // Switch to console view
+            for (Component c : sidebarPanel.getComponents()) {
+                if (c instanceof JButton && "console".equals(((JButton) c).getClientProperty("card"))) {
+                    switchCard("console", (JButton) c);
+                    break;
+                }
+            }
 
-            if (!Files.exists(target)) {
+            // launching only covers preparation; once spawned, the supervisor owns the game
+            CancelToken token = launchToken = new CancelToken();
+            TASKS.io.submit(() -> {
                 try {
-                    Files.createDirectories(target.getParent());
-                    download(url, target, path);
+                    DOWNLOADS.cancellable(token, () -> launch(opts));
                 } catch (Exception e) {
-                    logErr("Library download failed: " + path + " — " + e.getMessage());
+                    logErr("Launch failed: " + e.getMessage());
+                    e.printStackTrace();
+                } finally {
+                    launchCancelled = false;
+                    launching = false;
+                    SwingUtilities.invokeLater(() -> {
+                        btnPlay.setEnabled(true);
+                        btnPlay.setBackground(C_ACCENT);
+                        btnPlay.setText("LAUNCH");
+                        setStatus("Ready");
+                        progBar.setValue(0);
+                        lblProgress.setText("");
+                    });
                 }
-            }
-            int done = dlCount.incrementAndGet();
-            updateProgress(done, libs.size(), "Libraries");
+            });
         }
-        log("Libraries resolved: " + libs.size());
-    }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  NATIVES EXTRACTION
-    // ═══════════════════════════════════════════════════════════════════
-    void extractNatives(String verJson, Path nativesDir) {
-        // Find classifiers → natives entries with OS-specific keys
-        String osKey = getOsNativeKey();
-        log("Looking for natives classifier: " + osKey);
-
-        // Pattern: "classifiers" block containing OS-specific native jars
-        // "natives-linux": { "path": "...", "url": "..." }
-        Pattern p = Pattern.compile(
-                "\"" + Pattern.quote(osKey) + "\"\\s*:\\s*\\{[^}]*?" +
-                "\"path\"\\s*:\\s*\"([^\"]+)\"[^}]*?" +
-                "\"url\"\\s*:\\s*\"([^\"]+)\"", Pattern.DOTALL);
-        Matcher m = p.matcher(verJson);
-
-        int count = 0;
-        while (m.find()) {
-            String path = m.group(1);
-            String url  = m.group(2);
-            Path jarFile = LIB_DIR.resolve(path.replace("/", File.separator));
+        /**
+         * The Play button while a launch is being prepared: every download this
+         * launch has queued, running or is waiting on fails at once, as does any
+         * it starts later, and the game is not spawned. Other launches and
+         * installs carry on.
+         */
+        void cancelLaunch() {
+            if (launchCancelled) return;
+            launchCancelled = true;
+            log("Cancelling launch...");
+            btnPlay.setEnabled(false);
+            btnPlay.setText("...");
+            DOWNLOADS.cancel(launchToken);
+        }
 
-            try {
-                if (!Files.exists(jarFile)) {
-                    Files.createDirectories(jarFile.getParent());
-                    download(url, jarFile, "native: " + path);
-                }
-                // Extract .so / .dll / .dylib / .jnilib from the jar
-                extractNativeJar(jarFile, nativesDir);
-                count++;
-            } catch (Exception e) {
-                logErr("Native extract fail: " + path + " — " + e.getMessage());
+        /** A named instance takes the current selections and saves them as its own. */
+        LaunchOptions optionsFromUi(String[] ver) throws IOException {
+            String java = tfJavaPath != null ? tfJavaPath.getText().trim() : "";
+            boolean fullscreen = cbFullscreen != null && cbFullscreen.isSelected();
+            String name = tfInstance.getText().trim();
+            if (!name.isEmpty()) {
+                Instance inst = Instance.open(name);
+                inst.version = ver[0];
+                inst.fabric = cbFabric.isSelected();
+                inst.ramMb = tfRam.getText().trim();
+                inst.javaPath = java;
+                inst.save();
+                return inst.options(ver[2], tfUser.getText().trim(), getDefaultJavaPath(),
+                        cbFabOpt.isSelected(), fullscreen);
             }
+            return new LaunchOptions(ver[0], ver[2], tfUser.getText().trim(), tfRam.getText().trim(),
+                    java.isEmpty() ? getDefaultJavaPath() : java,
+                    cbFabric.isSelected(), cbFabOpt.isSelected(), fullscreen);
         }
-        log("Extracted " + count + " native jar(s) to " + nativesDir);
-    }
 
-    void extractNativeJar(Path jarFile, Path targetDir) throws IOException {
-        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(jarFile))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                String name = entry.getName();
-                if (entry.isDirectory() || name.startsWith("META-INF")) continue;
-                // Only extract native library files
-                if (name.endsWith(".so") || name.endsWith(".dll") ||
-                    name.endsWith(".dylib") || name.endsWith(".jnilib")) {
-                    Path out = targetDir.resolve(Paths.get(name).getFileName());
-                    if (!Files.exists(out)) {
-                        Files.copy(zis, out);
-                    }
+        /** Shows a saved instance's version, loader and memory */
+        void applyInstanceToUi() {
+            String name = tfInstance.getText().trim();
+            if (name.isEmpty()) return;
+            try {
+                Instance inst = Instance.open(name);
+                if (!inst.exists()) {
+                    setStatus("New instance '" + name + "' — created on launch");
+                    return;
                 }
+                ddVersion.select(inst.version);
+                cbFabric.setSelected(inst.fabric);
+                if (!inst.ramMb.isEmpty()) tfRam.setText(inst.ramMb);
+                if (!inst.javaPath.isEmpty() && tfJavaPath != null) tfJavaPath.setText(inst.javaPath);
+                setStatus("Instance '" + name + "': " + inst.version + (inst.fabric ? " + Fabric" : ""));
+            } catch (IOException e) {
+                logErr(e.getMessage());
             }
         }
-    }
 
-    String getOsNativeKey() {
-        String os = System.getProperty("os.name", "").toLowerCase();
-        if (os.contains("win"))   return "natives-windows";
-        if (os.contains("mac"))   return "natives-macos";
-        return "natives-linux";
-    }
+        // ───────── Game tabs ─────────
+        /** A running or exited game's console tab */
+        final class GameTab {
+            ConsoleView view;
+            JPanel  panel;
+            JLabel  lblStats;
+            JButton btnStop;
+        }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  ASSET INDEX & OBJECTS
-    // ═══════════════════════════════════════════════════════════════════
-    void downloadAssetIndex(String verJson, String indexId) {
-        // Get asset index URL
-        String indexUrl = jsonExtract(verJson,
-                "\"assetIndex\"\\s*:\\s*\\{[^}]*?\"url\"\\s*:\\s*\"([^\"]+)\"");
-        if (indexUrl == null) {
-            log("No asset index URL found — skipping asset download");
-            return;
+        /** A console tab with its own bounded document, stats line and Stop button */
+        void addTab(GameProcess gp) {
+            // The session log already has every line, so lines scrolled off are simply dropped
+            BoundedConsoleDocument doc = new BoundedConsoleDocument(CONSOLE_LINES, evicted -> { });
+            GameTab t = new GameTab();
+            t.view = new ConsoleView(gp.out, doc, consoleArea(doc));
+            t.view.start();
+
+            t.lblStats = new JLabel(gp.stats());
+            t.lblStats.setForeground(C_DIM);
+            t.lblStats.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+            t.btnStop = darkBtn("Stop");
+            t.btnStop.addActionListener(e -> {
+                if (gp.proc.isAlive()) {
+                    if (!t.btnStop.getText().equals("Force stop")) {
+                        gp.proc.destroy();
+                        t.btnStop.setText("Force stop");
+                    } else {
+                        gp.proc.destroyForcibly();
+                    }
+                } else {
+                    t.view.drain();
+                    t.view.stop();
+                    consoleTabs.remove(t.panel);
+                    gameTabs.remove(gp);
+                }
+            });
+
+            JPanel bar = new JPanel(new BorderLayout());
+            bar.setBackground(C_BG);
+            bar.add(t.lblStats, BorderLayout.WEST);
+            bar.add(t.btnStop, BorderLayout.EAST);
+
+            t.panel = new JPanel(new BorderLayout(0, 6));
+            t.panel.setBackground(C_BG);
+            t.panel.putClientProperty("doc", doc);
+            t.panel.add(bar, BorderLayout.NORTH);
+            t.panel.add(consoleScroll(t.view.area), BorderLayout.CENTER);
+            gameTabs.put(gp, t);
+            consoleTabs.addTab(gp.name, t.panel);
+            consoleTabs.setSelectedComponent(t.panel);
         }
 
-        Path indexFile = ASS_DIR.resolve("indexes").resolve(indexId + ".json");
-        try {
-            if (!Files.exists(indexFile)) {
-                log("Downloading asset index: " + indexId);
-                download(indexUrl, indexFile, "asset index");
+        /**
+         * Drains a {@link LogPipeline} into its text area on a Swing timer, one
+         * batch per tick, so a chatty game costs one append and one caret move
+         * per tick instead of one EDT event per line.
+         */
+        final class ConsoleView {
+            static final int TICK_MS = 50;
+
+            final LogPipeline src;
+            final BoundedConsoleDocument doc;
+            final JTextArea area;
+            final javax.swing.Timer timer = new javax.swing.Timer(TICK_MS, e -> drain());
+
+            ConsoleView(LogPipeline src, BoundedConsoleDocument doc, JTextArea area) {
+                this.src = src;
+                this.doc = doc;
+                this.area = area;
             }
 
-            // Parse asset objects: "hash": "abcdef123..."
-            String indexJson = new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8);
-            Pattern hp = Pattern.compile("\"hash\"\\s*:\\s*\"([a-f0-9]{40})\"");
-            Matcher hm = hp.matcher(indexJson);
+            void start() {
+                timer.start();
+            }
 
-            List<String> hashes = new ArrayList<>();
-            while (hm.find()) hashes.add(hm.group(1));
-            log("Asset index has " + hashes.size() + " objects");
+            void stop() {
+                timer.stop();
+            }
 
-            int downloaded = 0;
-            for (int i = 0; i < hashes.size(); i++) {
-                String hash = hashes.get(i);
-                String prefix = hash.substring(0, 2);
-                Path objPath = ASS_DIR.resolve("objects").resolve(prefix).resolve(hash);
+            void drain() {
+                StringBuilder sb = new StringBuilder(4096);
+                if (!src.drainTo(sb)) return;
+                doc.appendLines(sb);
+                area.setCaretPosition(doc.getLength());
+            }
+        }
 
-                if (!Files.exists(objPath)) {
-                    Files.createDirectories(objPath.getParent());
-                    String objUrl = RESOURCES_URL + prefix + "/" + hash;
-                    try {
-                        downloadQuiet(objUrl, objPath);
-                        downloaded++;
-                    } catch (Exception e) {
-                        // Non-fatal: some assets may be optional
+        void openDir(Path dir) {
+            try {
+                if (Desktop.isDesktopSupported()) {
+                    Desktop.getDesktop().open(dir.toFile());
+                }
+            } catch (Exception e) {
+                logErr("Could not open directory: " + e.getMessage());
+            }
+        }
+
+        // ───────── Profile ─────────
+        void saveProfile() {
+            Properties p = new Properties();
+            p.setProperty("user", tfUser.getText());
+            p.setProperty("ram", tfRam.getText());
+            if (tfJavaPath != null) p.setProperty("java", tfJavaPath.getText());
+            p.setProperty("fabric", String.valueOf(cbFabric.isSelected()));
+            p.setProperty("fabopt", String.valueOf(cbFabOpt.isSelected()));
+            if (cbSnapshots != null) p.setProperty("snapshots", String.valueOf(cbSnapshots.isSelected()));
+            if (cbFullscreen != null) p.setProperty("fullscreen", String.valueOf(cbFullscreen.isSelected()));
+            p.setProperty("instance", tfInstance.getText().trim());
+            int idx = ddVersion.getSelectedIndex();
+            if (idx >= 0 && idx < dispVersions.size()) {
+                p.setProperty("version", dispVersions.get(idx)[0]);
+            }
+            try (OutputStream out = Files.newOutputStream(PROF_FILE)) {
+                p.store(out, APP + " v" + VER + " Config");
+            } catch (Exception e) {
+                logErr("Profile save: " + e.getMessage());
+            }
+        }
+
+        void loadProfile() {
+            if (!Files.exists(PROF_FILE)) return;
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(PROF_FILE)) {
+                p.load(in);
+                if (p.containsKey("user"))       tfUser.setText(p.getProperty("user"));
+                if (p.containsKey("ram"))        tfRam.setText(p.getProperty("ram"));
+                if (p.containsKey("java") && tfJavaPath != null)
+                    tfJavaPath.setText(p.getProperty("java"));
+                if (p.containsKey("fabric"))     cbFabric.setSelected(Boolean.parseBoolean(p.getProperty("fabric")));
+                if (p.containsKey("fabopt"))     cbFabOpt.setSelected(Boolean.parseBoolean(p.getProperty("fabopt")));
+                if (p.containsKey("snapshots") && cbSnapshots != null)
+                    cbSnapshots.setSelected(Boolean.parseBoolean(p.getProperty("snapshots")));
+                if (p.containsKey("fullscreen") && cbFullscreen != null)
+                    cbFullscreen.setSelected(Boolean.parseBoolean(p.getProperty("fullscreen")));
+                if (p.containsKey("instance"))   tfInstance.setText(p.getProperty("instance"));
+                // Version selection is restored after manifest loads
+            } catch (Exception e) {
+                logErr("Profile load: " + e.getMessage());
+            }
+        }
+
+        // ───────── Version dropdown ─────────
+        class DarkDropdown extends JComboBox<String> {
+            DarkDropdown() {
+                setRenderer(new DefaultListCellRenderer() {
+                    @Override
+                    public Component getListCellRendererComponent(
+                            JList<?> list, Object value, int index,
+                            boolean isSelected, boolean hasFocus) {
+                        super.getListCellRendererComponent(list, value, index, isSelected, hasFocus);
+                        setBackground(isSelected ? C_ACCENT : C_FIELD);
+                        setForeground(C_WHITE);
+                        setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+                        setFont(new Font("Segoe UI", Font.PLAIN, 12));
+                        return this;
+                    }
+                });
+                setBackground(C_FIELD);
+                setForeground(C_WHITE);
+                setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            }
+
+            void updateList() {
+                removeAllItems();
+                synchronized (dispVersions) {
+                    for (String[] v : dispVersions) {
+                        String tag = v[1].equals("release") ? "" :
+                                     v[1].equals("local") ? " [local]" : " [" + v[1] + "]";
+                        addItem(v[0] + tag);
+                    }
+                }
+                // Try to restore saved version
+                if (Files.exists(PROF_FILE)) {
+                    try {
+                        Properties p = new Properties();
+                        p.load(Files.newInputStream(PROF_FILE));
+                        String saved = p.getProperty("version");
+                        if (saved != null) {
+                            for (int i = 0; i < dispVersions.size(); i++) {
+                                if (dispVersions.get(i)[0].equals(saved)) {
+                                    setSelectedIndex(i);
+                                    return;
+                                }
+                            }
+                        }
+                    } catch (Exception ignored) {}
+                }
+                if (getItemCount() > 0) setSelectedIndex(0);
+            }
+
+            /** Selects the listed version with this id; false if it is not shown */
+            boolean select(String id) {
+                for (int i = 0; i < dispVersions.size(); i++) {
+                    if (dispVersions.get(i)[0].equals(id)) {
+                        setSelectedIndex(i);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            String[] getSelected() {
+                int idx = getSelectedIndex();
+                if (idx < 0 || idx >= dispVersions.size()) return null;
+                return dispVersions.get(idx);
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  MANIFEST FETCHING & VERSION LIST
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Shows the cached manifest straight away, then revalidates it in the
+     * background with If-None-Match / If-Modified-Since. Startup no longer waits
+     * on the network, and offline starts still get the full version list.
+     */
+    void fetchManifest() {
+        setStatus("Loading versions...");
+        TASKS.ui.submit(() -> {
+            boolean cached = false;
+            try {
+                if (Files.exists(MANIFEST_CACHE)) {
+                    parseManifest(MANIFEST_CACHE);
+                    cached = true;
+                    ui.versionsChanged();
+                    setStatus("Ready — " + allVersions.size() + " versions (cached), checking for updates...");
+                }
+            } catch (Exception e) {
+                logErr("Manifest cache unreadable: " + e.getMessage());
+            }
+
+            try {
+                if (revalidateManifest() || !cached) {
+                    parseManifest(MANIFEST_CACHE);
+                    ui.versionsChanged();
+                    setStatus("Ready — " + allVersions.size() + " versions loaded");
+                } else {
+                    log("Manifest unchanged since last start");
+                    setStatus("Ready — " + allVersions.size() + " versions loaded");
+                }
+            } catch (Exception e) {
+                logErr("Manifest fetch failed: " + e.getMessage());
+                setStatus(cached ? "Offline — using cached manifest" : "Offline — no manifest");
+                // Add installed versions the manifest does not know about
+                scanLocalVersions();
+            }
+        });
+    }
+
+    /**
+     * Conditional GET of the manifest into MANIFEST_CACHE. Returns true if a new
+     * copy was stored, false on 304 Not Modified.
+     */
+    boolean revalidateManifest() throws Exception {
+        Properties meta = new Properties();
+        if (Files.exists(MANIFEST_CACHE) && Files.exists(MANIFEST_META)) {
+            try (InputStream in = Files.newInputStream(MANIFEST_META)) {
+                meta.load(in);
+            }
+        }
+        HttpRequest.Builder req = Http.request(MANIFEST_URL, 15);
+        if (meta.getProperty("etag") != null) req.header("If-None-Match", meta.getProperty("etag"));
+        if (meta.getProperty("lastModified") != null) {
+            req.header("If-Modified-Since", meta.getProperty("lastModified"));
+        }
+        HttpResponse<byte[]> resp = Http.CLIENT.send(req.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (resp.statusCode() == 304) return false;
+        if (resp.statusCode() != 200) {
+            throw new IOException("HTTP " + resp.statusCode() + " for " + MANIFEST_URL);
+        }
+
+        Path tmp = MANIFEST_CACHE.resolveSibling(MANIFEST_CACHE.getFileName() + ".tmp");
+        Files.write(tmp, resp.body());
+        moveIntoPlace(tmp, MANIFEST_CACHE);
+
+        meta.clear();
+        resp.headers().firstValue("ETag").ifPresent(v -> meta.setProperty("etag", v));
+        resp.headers().firstValue("Last-Modified").ifPresent(v -> meta.setProperty("lastModified", v));
+        try (OutputStream out = Files.newOutputStream(MANIFEST_META)) {
+            meta.store(out, APP + " manifest validators");
+        }
+        return true;
+    }
+
+    void parseManifest(Path file) throws IOException {
+        List<String[]> parsed;
+        try (JsonReader r = JsonReader.of(file)) {
+            parsed = readManifest(r);
+        }
+        synchronized (allVersions) {
+            allVersions.clear();
+            allVersions.addAll(parsed);
+        }
+        log("Parsed " + parsed.size() + " versions from manifest");
+    }
+
+    void scanLocalVersions() {
+        try {
+            if (!Files.isDirectory(VER_DIR)) return;
+            Set<String> known = new HashSet<>();
+            synchronized (allVersions) {
+                for (String[] v : allVersions) known.add(v[0]);
+            }
+            int added = 0;
+            try (java.util.stream.Stream<Path> st = Files.list(VER_DIR)) {
+                for (Path dir : (Iterable<Path>) st.filter(Files::isDirectory)::iterator) {
+                    String id = dir.getFileName().toString();
+                    Path jsonFile = dir.resolve(id + ".json");
+                    if (Files.exists(jsonFile) && known.add(id)) {
+                        allVersions.add(new String[]{id, "local", ""});
+                        added++;
+                    }
+                }
+            }
+            if (added > 0) {
+                log("Found " + added + " local version(s)");
+                if (ui != null) ui.versionsChanged();
+            }
+        } catch (Exception e) {
+            logErr("Local scan: " + e.getMessage());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  LAUNCH PIPELINE
+    // ═══════════════════════════════════════════════════════════════════
+    /** Snapshot of the launch settings, so the pipeline never reads Swing widgets */
+    static final class LaunchOptions {
+        final String  verId, jsonUrl, user, ramMb, javaPath;
+        final boolean fabric, fabOpt, fullscreen;
+        // Instance name (null: the shared root), the game directory and extra JVM arguments
+        final String  instance;
+        final Path    gameDir;
+        final List<String> jvmArgs;
+
+        LaunchOptions(String verId, String jsonUrl, String user, String ramMb, String javaPath,
+                      boolean fabric, boolean fabOpt, boolean fullscreen) {
+            this(verId, jsonUrl, user, ramMb, javaPath, fabric, fabOpt, fullscreen,
+                    null, ROOT, Collections.emptyList());
+        }
+
+        LaunchOptions(String verId, String jsonUrl, String user, String ramMb, String javaPath,
+                      boolean fabric, boolean fabOpt, boolean fullscreen,
+                      String instance, Path gameDir, List<String> jvmArgs) {
+            this.instance = instance;
+            this.gameDir = gameDir;
+            this.jvmArgs = jvmArgs;
+            this.verId = verId;
+            this.jsonUrl = jsonUrl;
+            this.user = user;
+            this.ramMb = ramMb;
+            this.javaPath = javaPath;
+            this.fabric = fabric;
+            this.fabOpt = fabOpt;
+            this.fullscreen = fullscreen;
+        }
+    }
+
+    /** Shared-root plans sit with the version; an instance keeps its own */
+    static Path planFile(LaunchOptions o) {
+        String name = o.verId + "." + (o.fabric ? "fabric" : "vanilla") + ".plan";
+        return o.instance == null ? VER_DIR.resolve(o.verId).resolve(name)
+                : INST_DIR.resolve(o.instance).resolve(name);
+    }
+
+    /** Launches the game and waits for it; returns its exit code */
+    int prepareAndLaunch(LaunchOptions o) throws Exception {
+        return games.waitFor(launch(o));
+    }
+
+    /** Prepares (or reuses a cached plan) and starts the game under the process supervisor */
+    GameProcess launch(LaunchOptions o) throws Exception {
+        long clicked = System.nanoTime();
+        String verId = o.verId;
+        boolean fabric = o.fabric;
+        String loader = fabric ? "fabric" : "vanilla";
+        LaunchMetrics metrics = new LaunchMetrics(verId, loader);
+        Path planFile = planFile(o);
+        String settings = launchSettingsKey(o);
+        if (o.instance != null) log("Instance '" + o.instance + "' — game directory " + o.gameDir);
+
+        long t = System.nanoTime();
+        LaunchPlan plan = LaunchPlan.loadIfValid(planFile, settings);
+        metrics.phase("plan lookup", t);
+        metrics.cache("plan", plan != null);
+        if (plan != null) {
+            log("═══ Warm launch: " + verId + " (" + loader + ") ═══");
+            log("Launch plan valid — preparation skipped ("
+                    + (System.nanoTime() - clicked) / 1_000_000 + " ms)");
+        } else {
+            log("═══ Preparing: " + verId + " ═══");
+            t = System.nanoTime();
+            plan = prepareLaunchPlan(o, settings, metrics);
+            metrics.phase("prepare", t);
+            if (plan.complete) plan.save(planFile);
+            else log("Preparation had errors — launch plan not cached");
+        }
+
+        // Fabulously Optimized mods
+        if (o.fabOpt) {
+            setStatus("Checking FO mods...");
+            log("Fabulously Optimized: ensure mods are in " + o.gameDir.resolve("mods"));
+            log("Visit https://modrinth.com/modpack/fabulously-optimized for the latest pack.");
+            // Auto-download is complex (Modrinth pack index → individual mod jars).
+            // We log guidance; a future version can automate this via Modrinth API.
+        }
+
+        if (launchCancelled) throw new InterruptedIOException("Launch cancelled");
+        for (GameProcess running : games.live.values()) {
+            if (running.gameDir.equals(o.gameDir)) {
+                logErr("'" + running.name + "' is already running in " + o.gameDir
+                        + " — the two games will share options, saves and mods");
+            }
+        }
+        setStatus("Launching Minecraft " + verId + "...");
+        log("Launching with " + plan.command.size() + " args");
+        ProcessBuilder pb = new ProcessBuilder(plan.command);
+        Files.createDirectories(o.gameDir);
+        pb.directory(o.gameDir.toFile());
+        pb.redirectErrorStream(true);
+        t = System.nanoTime();
+        Process proc = pb.start();
+        metrics.phase("spawn", t);
+        log("JVM spawned " + (System.nanoTime() - clicked) / 1_000_000 + " ms after launch request");
+        for (String line : metrics.summary()) log(line);
+        try {
+            log("Launch report: " + metrics.writeReport(LOG_DIR));
+        } catch (IOException e) {
+            logErr("Launch report not written: " + e.getMessage());
+        }
+
+        String session = "game-" + (o.instance != null ? o.instance + "-" : "") + verId + "-"
+                + new java.text.SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        RollingLogWriter gameLog = new RollingLogWriter(LOG_DIR, session,
+                GAME_LOG_MAX, GAME_LOG_MAX_AGE, Integer.MAX_VALUE, GAME_LOG_GZIP);
+        log("Game output is also written to " + LOG_DIR.resolve(session + ".log"));
+        return games.attach(o.user + "@" + (o.instance != null ? o.instance : verId), o.gameDir, proc, gameLog);
+    }
+
+    /** Everything outside the version's files that shapes the command line */
+    String launchSettingsKey(LaunchOptions o) {
+        return String.join("\n", APP + "/" + VER, o.verId, o.fabric ? "fabric" : "vanilla",
+                o.user, o.ramMb, o.javaPath, String.valueOf(o.fullscreen),
+                o.gameDir.toString(), String.join(" ", o.jvmArgs),
+                String.valueOf(getJavaMajorVersion()), ROOT.toString(),
+                hostOsName() + "/" + hostArch());
+    }
+
+    /** Full (cold) preparation: fetch and check every input, then resolve the command line */
+    LaunchPlan prepareLaunchPlan(LaunchOptions o, String settings, LaunchMetrics metrics) throws Exception {
+        String verId = o.verId, jsonUrl = o.jsonUrl;
+        LaunchPipeline pipe = new LaunchPipeline(verId, metrics);
+        Path verDir    = VER_DIR.resolve(verId);
+        Path jsonPath  = verDir.resolve(verId + ".json");
+        Path clientJar = verDir.resolve(verId + ".jar");
+        Path nativesDir = NAT_DIR.resolve(verId);
+        StringBuilder libCp    = new StringBuilder();
+        StringBuilder fabricCp = new StringBuilder();
+        AtomicBoolean complete = new AtomicBoolean(true);
+        AtomicReference<String> fabricMain = new AtomicReference<>();
+
+        // 1 ── Version JSON: the only real dependency of every other stage
+        setStatus("Downloading version JSON...");
+        Files.createDirectories(verDir);
+        VersionProfile vp = pipe.timed("version JSON", () -> {
+            if (!Files.exists(jsonPath)) {
+                if (jsonUrl == null || jsonUrl.isEmpty()) {
+                    throw new Exception("No URL for version JSON and not cached locally");
+                }
+                log("Downloading version JSON...");
+                download(jsonUrl, jsonPath, "version JSON", metrics);
+            }
+            return VersionProfile.load(jsonPath, metrics);
+        });
+
+        // 2-6 ── Client JAR, libraries, natives, assets and Fabric run side by side
+        setStatus("Preparing " + verId + "...");
+        pipe.stage("client JAR", () -> downloadClientJar(vp, clientJar, metrics));
+        pipe.stage("libraries",  () -> {
+            if (!downloadLibraries(vp, libCp, metrics)) complete.set(false);
+        });
+        pipe.stage("natives",    () -> {
+            Files.createDirectories(nativesDir);
+            if (!extractNatives(vp, nativesDir, metrics)) complete.set(false);
+        });
+        pipe.stage("assets",     () -> {
+            if (!downloadAssetIndex(vp, metrics)) complete.set(false);
+        });
+        if (o.fabric) {
+            pipe.stage("fabric", () -> {
+                fabricMain.set(installFabric(verId, fabricCp, metrics));
+                if (fabricMain.get() == null) complete.set(false);
+            });
+        }
+        pipe.join();
+        pipe.report();
+
+        // Fabric libraries first, then vanilla libraries in JSON order, then the client
+        StringBuilder classpath = new StringBuilder(fabricCp).append(libCp).append(clientJar.toString());
+
+        // 7 ── Build command line
+        List<String> cmd = new ArrayList<>();
+
+        String javaPath = o.javaPath;
+        cmd.add(javaPath);
+
+        // macOS LWJGL requirement
+        if (isMac()) {
+            cmd.add("-XstartOnFirstThread");
+            log("macOS: added -XstartOnFirstThread");
+        }
+
+        // Java 9+ module flags for modern MC/LWJGL
+        int javaVer = getJavaMajorVersion();
+        if (vp.javaMajor > javaVer && javaPath.equals(getDefaultJavaPath())) {
+            logErr(verId + " expects Java " + vp.javaMajor + " but the launcher runs on Java "
+                    + javaVer + " — set a newer Java Path in Settings if the game fails to start");
+        }
+        if (javaVer >= 9) {
+            cmd.add("--add-opens=java.base/java.net=ALL-UNNAMED");
+            cmd.add("--add-opens=java.base/sun.nio.ch=ALL-UNNAMED");
+            cmd.add("--add-opens=java.base/java.lang=ALL-UNNAMED");
+            cmd.add("--add-opens=java.base/java.lang.reflect=ALL-UNNAMED");
+            cmd.add("--add-opens=java.base/java.util=ALL-UNNAMED");
+            cmd.add("--add-exports=java.base/sun.security.action=ALL-UNNAMED");
+        }
+
+        cmd.add("-Xmx" + o.ramMb + "M");
+        cmd.add("-Xms256M");
+        cmd.addAll(o.jvmArgs);
+        cmd.add("-Djava.library.path=" + nativesDir.toString());
+        cmd.add("-Dminecraft.launcher.brand=" + APP);
+        cmd.add("-Dminecraft.launcher.version=" + VER);
+        cmd.add("-cp");
+        cmd.add(classpath.toString());
+
+        // Main class — Fabric's Knot launcher when Fabric installed cleanly
+        String mainClass = fabricMain.get() != null ? fabricMain.get()
+                : vp.mainClass != null ? vp.mainClass : "net.minecraft.client.main.Main";
+        cmd.add(mainClass);
+
+        // Game arguments
+        String offlineUuid = UUID.nameUUIDFromBytes(
+                ("OfflinePlayer:" + o.user).getBytes(StandardCharsets.UTF_8))
+                .toString().replace("-", "");
+
+        cmd.add("--version");   cmd.add(verId);
+        cmd.add("--gameDir");   cmd.add(o.gameDir.toString());
+        cmd.add("--assetsDir"); cmd.add(ASS_DIR.toString());
+        cmd.add("--assetIndex"); cmd.add(vp.assetIndexId());
+        cmd.add("--uuid");       cmd.add(offlineUuid);
+        cmd.add("--accessToken"); cmd.add("0");
+        cmd.add("--userType");   cmd.add("legacy");
+        cmd.add("--username");   cmd.add(o.user);
+
+        if (o.fullscreen) {
+            cmd.add("--fullscreen");
+        }
+
+        log("Main class: " + mainClass);
+
+        // Every file the command line depends on; any change invalidates the plan
+        List<Path> inputs = new ArrayList<>();
+        inputs.add(jsonPath);
+        for (String entry : classpath.toString().split(Pattern.quote(File.pathSeparator))) {
+            if (!entry.isEmpty()) inputs.add(Paths.get(entry));
+        }
+        inputs.add(ASS_DIR.resolve("indexes").resolve(vp.assetIndexId() + ".json"));
+        try (java.util.stream.Stream<Path> st = Files.list(nativesDir)) {
+            st.sorted().forEach(inputs::add);
+        }
+        LaunchPlan plan = new LaunchPlan(settings, cmd, inputs);
+        plan.complete = complete.get();
+        return plan;
+    }
+
+    /**
+     * A fully resolved launch for one version + loader: the command line plus a
+     * fingerprint of what it was derived from (launch settings and the size and
+     * mtime of every file it references). While the fingerprint still matches,
+     * a Play click goes straight to ProcessBuilder.start without re-walking
+     * libraries, natives or the asset index.
+     */
+    static final class LaunchPlan {
+        static final int MAGIC   = 0x4354504C; // "CTPL"
+        static final int VERSION = 1;
+
+        final String       settings;
+        final List<String> command;
+        final List<Path>   inputs;
+        boolean complete = true;
+
+        LaunchPlan(String settings, List<String> command, List<Path> inputs) {
+            this.settings = settings;
+            this.command = command;
+            this.inputs = inputs;
+        }
+
+        void save(Path file) {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeUTF(settings);
+                    out.writeInt(inputs.size());
+                    for (Path p : inputs) {
+                        out.writeUTF(p.toString());
+                        out.writeLong(Files.size(p));
+                        out.writeLong(Files.getLastModifiedTime(p).toMillis());
+                    }
+                    out.writeInt(command.size());
+                    for (String arg : command) writeText(out, arg);
+                }
+                moveIntoPlace(tmp, file);
+            } catch (IOException e) {
+                // No plan just means the next launch does a full preparation
+                try { Files.deleteIfExists(tmp); } catch (IOException ignored) {}
+            }
+        }
+
+        /** The saved plan, if its settings and every input file are unchanged; else null */
+        static LaunchPlan loadIfValid(Path file, String settings) {
+            if (!Files.exists(file)) return null;
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+                if (!in.readUTF().equals(settings)) return null;
+                List<Path> inputs = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    Path p = Paths.get(in.readUTF());
+                    long size = in.readLong(), mtime = in.readLong();
+                    if (!Files.exists(p) || Files.size(p) != size
+                            || Files.getLastModifiedTime(p).toMillis() != mtime) {
+                        return null;
+                    }
+                    inputs.add(p);
+                }
+                List<String> command = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) command.add(readText(in));
+                return new LaunchPlan(settings, command, inputs);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        // The classpath argument can exceed writeUTF's 64 KB limit
+        static void writeText(DataOutputStream out, String s) throws IOException {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+
+        static String readText(DataInputStream in) throws IOException {
+            byte[] b = new byte[in.readInt()];
+            in.readFully(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }
+
+    void downloadClientJar(VersionProfile vp, Path clientJar, LaunchMetrics metrics) throws Exception {
+        Artifact client = vp.client != null ? vp.client.to(clientJar) : null;
+        if (!isIntact(clientJar, client != null ? client.size : -1, metrics)) {
+            if (client != null && client.url != null) {
+                log("Downloading client JAR...");
+                download(client.url, clientJar, "client JAR", client.sha1, client.size, metrics);
+            } else {
+                throw new Exception("Could not find client JAR URL in version JSON");
+            }
+        }
+    }
+
+    interface PrepStep {
+        void run() throws Exception;
+    }
+
+    interface PrepCall<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Launch preparation as a small dependency graph: once the version JSON is
+     * parsed, every stage that only needs the JSON is started at once, and
+     * {@link #join()} is the barrier the launch step waits on. Stages run on
+     * the shared I/O lane. Each stage's start offset and wall time are
+     * recorded, here and in the launch's metrics, so the critical path is
+     * visible.
+     */
+    class LaunchPipeline {
+        final String verId;
+        final LaunchMetrics metrics;
+        final long t0 = System.nanoTime();
+        final Map<String, CompletableFuture<Void>> stages = new LinkedHashMap<>();
+        // name → {start offset, duration} in nanoseconds
+        final Map<String, long[]> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        LaunchPipeline(String verId, LaunchMetrics metrics) {
+            this.verId = verId;
+            this.metrics = metrics;
+        }
+
+        <T> T timed(String name, PrepCall<T> body) throws Exception {
+            long start = System.nanoTime();
+            try {
+                return body.call();
+            } finally {
+                timings.put(name, new long[]{start - t0, System.nanoTime() - start});
+                metrics.phase(metrics.stagePhase(verId, name), start);
+            }
+        }
+
+        void stage(String name, PrepStep body) {
+            stages.put(name, CompletableFuture.runAsync(() -> {
+                try {
+                    timed(name, () -> { body.run(); return null; });
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, TASKS.io));
+        }
+
+        /** Wait for every stage; the first failure (in stage order) is rethrown */
+        void join() throws Exception {
+            Exception first = null;
+            for (Map.Entry<String, CompletableFuture<Void>> st : stages.entrySet()) {
+                try {
+                    st.getValue().join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logErr("Stage '" + st.getKey() + "' failed: " + cause.getMessage());
+                    if (first == null) {
+                        first = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+                    }
+                }
+            }
+            if (first != null) throw first;
+        }
+
+        void report() {
+            String critical = null;
+            long worst = -1;
+            StringBuilder sb = new StringBuilder("Stage times:");
+            synchronized (timings) {
+                for (Map.Entry<String, long[]> t : timings.entrySet()) {
+                    long end = t.getValue()[0] + t.getValue()[1];
+                    sb.append(String.format(" %s %d ms (+%d) |", t.getKey(),
+                            t.getValue()[1] / 1_000_000, t.getValue()[0] / 1_000_000));
+                    if (end > worst) {
+                        worst = end;
+                        critical = t.getKey();
+                    }
+                }
+            }
+            sb.setLength(sb.length() - 2);
+            log(sb.toString());
+            if (critical != null) {
+                log("Critical path: " + critical + " (ready after " + worst / 1_000_000 + " ms)");
+            }
+        }
+    }
+
+    /**
+     * Timers and counters for one launch. Phases are monotonic (nanoTime)
+     * offsets from the launch request; counters are LongAdders so download
+     * and check threads can bump them without contention. Each launch (or
+     * --install batch) creates its own and hands it down to everything it
+     * runs, so launches, installs and verification that overlap never mix
+     * their figures.
+     */
+    static final class LaunchMetrics {
+        final String verId, loader;
+        final long   startedAt = System.currentTimeMillis();
+        final long   t0 = System.nanoTime();
+        // name → {start offset, duration} in nanoseconds
+        final Map<String, long[]> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+        // cache name → {hits, misses}
+        final Map<String, LongAdder[]> caches = new ConcurrentSkipListMap<>();
+        final LongAdder bytesDownloaded = new LongAdder();
+        final LongAdder filesDownloaded = new LongAdder();
+        final LongAdder filesChecked    = new LongAdder();
+        // Files this run already downloaded, and repeat requests for them
+        final Set<Path> fetched = ConcurrentHashMap.newKeySet();
+        final LongAdder filesDeduped = new LongAdder();
+        final LongAdder bytesDeduped = new LongAdder();
+        // Transfers that handed their slot to more urgent work and resumed later
+        final LongAdder transfersYielded = new LongAdder();
+        // Files materialized from the shared store instead of downloaded
+        final LongAdder filesLinked = new LongAdder();
+        final LongAdder bytesLinked = new LongAdder();
+
+        LaunchMetrics(String verId, String loader) {
+            this.verId = verId;
+            this.loader = loader;
+        }
+
+        void phase(String name, long startNanos) {
+            phases.put(name, new long[]{startNanos - t0, System.nanoTime() - startNanos});
+        }
+
+        void deduped(Path file, long size) {
+            filesDeduped.increment();
+            try {
+                bytesDeduped.add(size >= 0 ? size : Files.size(file));
+            } catch (IOException ignored) {
+            }
+        }
+
+        /** Phase name for a pipeline stage; batch runs keep each version's stages apart */
+        String stagePhase(String stageVer, String stage) {
+            return verId.equals(stageVer) ? "prepare/" + stage : stageVer + "/" + stage;
+        }
+
+        void cache(String name, boolean hit) {
+            caches.computeIfAbsent(name, k -> new LongAdder[]{new LongAdder(), new LongAdder()})[hit ? 0 : 1]
+                    .increment();
+        }
+
+        long hits() {
+            return caches.values().stream().mapToLong(c -> c[0].sum()).sum();
+        }
+
+        long misses() {
+            return caches.values().stream().mapToLong(c -> c[1].sum()).sum();
+        }
+
+        List<String> summary() {
+            List<String> out = new ArrayList<>();
+            out.add("── Launch summary: " + verId + " (" + loader + ") ──");
+            synchronized (phases) {
+                for (Map.Entry<String, long[]> p : phases.entrySet()) {
+                    out.add(String.format("  %-22s %6d ms  (at +%d ms)", p.getKey(),
+                            p.getValue()[1] / 1_000_000, p.getValue()[0] / 1_000_000));
+                }
+            }
+            out.add(String.format("  downloaded %d files, %.1f MB; checked %d files",
+                    filesDownloaded.sum(), bytesDownloaded.sum() / 1048576.0, filesChecked.sum()));
+            if (filesDeduped.sum() > 0) {
+                out.add(String.format("  shared %d files, %.1f MB between versions instead of fetching again",
+                        filesDeduped.sum(), bytesDeduped.sum() / 1048576.0));
+            }
+            if (filesLinked.sum() > 0) {
+                out.add(String.format("  linked %d files, %.1f MB from the shared store",
+                        filesLinked.sum(), bytesLinked.sum() / 1048576.0));
+            }
+            if (transfersYielded.sum() > 0) {
+                out.add("  " + transfersYielded.sum() + " transfer(s) yielded to more urgent downloads");
+            }
+            StringBuilder sb = new StringBuilder("  cache hits/misses: " + hits() + "/" + misses());
+            for (Map.Entry<String, LongAdder[]> c : caches.entrySet()) {
+                sb.append(" | ").append(c.getKey()).append(' ')
+                        .append(c.getValue()[0].sum()).append('/').append(c.getValue()[1].sum());
+            }
+            out.add(sb.toString());
+            return out;
+        }
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{\n");
+            sb.append("  \"launcher\": ").append(jsonQuote(APP + " " + VER)).append(",\n");
+            sb.append("  \"version\": ").append(jsonQuote(verId)).append(",\n");
+            sb.append("  \"loader\": ").append(jsonQuote(loader)).append(",\n");
+            sb.append("  \"startedAt\": ").append(startedAt).append(",\n");
+            sb.append("  \"host\": {\"os\": ").append(jsonQuote(hostOsName()))
+                    .append(", \"arch\": ").append(jsonQuote(hostArch()))
+                    .append(", \"cpus\": ").append(Runtime.getRuntime().availableProcessors())
+                    .append(", \"java\": ").append(jsonQuote(System.getProperty("java.version"))).append("},\n");
+            sb.append("  \"phases\": [");
+            synchronized (phases) {
+                String sep = "\n";
+                for (Map.Entry<String, long[]> p : phases.entrySet()) {
+                    sb.append(sep).append("    {\"name\": ").append(jsonQuote(p.getKey()))
+                            .append(", \"startMs\": ").append(p.getValue()[0] / 1_000_000.0)
+                            .append(", \"durationMs\": ").append(p.getValue()[1] / 1_000_000.0).append('}');
+                    sep = ",\n";
+                }
+            }
+            sb.append("\n  ],\n");
+            sb.append("  \"counters\": {\"bytesDownloaded\": ").append(bytesDownloaded.sum())
+                    .append(", \"filesDownloaded\": ").append(filesDownloaded.sum())
+                    .append(", \"filesChecked\": ").append(filesChecked.sum())
+                    .append(", \"filesDeduped\": ").append(filesDeduped.sum())
+                    .append(", \"bytesDeduped\": ").append(bytesDeduped.sum())
+                    .append(", \"transfersYielded\": ").append(transfersYielded.sum())
+                    .append(", \"filesLinked\": ").append(filesLinked.sum())
+                    .append(", \"bytesLinked\": ").append(bytesLinked.sum())
+                    .append(", \"cacheHits\": ").append(hits())
+                    .append(", \"cacheMisses\": ").append(misses()).append("},\n");
+            sb.append("  \"caches\": {");
+            String sep = "";
+            for (Map.Entry<String, LongAdder[]> c : caches.entrySet()) {
+                sb.append(sep).append(jsonQuote(c.getKey())).append(": {\"hits\": ").append(c.getValue()[0].sum())
+                        .append(", \"misses\": ").append(c.getValue()[1].sum()).append('}');
+                sep = ", ";
+            }
+            return sb.append("}\n}\n").toString();
+        }
+
+        /** Writes launch-&lt;version&gt;-&lt;timestamp&gt;.json into dir and returns its path */
+        Path writeReport(Path dir) throws IOException {
+            Files.createDirectories(dir);
+            String stamp = new java.text.SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startedAt));
+            Path file = dir.resolve("launch-" + verId + "-" + loader + "-" + stamp + ".json");
+            Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+            return file;
+        }
+    }
+
+    static String jsonQuote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  LIBRARY DOWNLOADING
+    // ═══════════════════════════════════════════════════════════════════
+    /** Appends the classpath entries; returns false if any library could not be fetched */
+    boolean downloadLibraries(VersionProfile vp, StringBuilder classpath, LaunchMetrics metrics) {
+        // Each library has: name (maven coord), downloads.artifact {path, sha1, size, url}
+        // and optional "rules" restricting it to certain OSes.
+        log("Resolving libraries...");
+
+        List<Artifact> libs = new ArrayList<>();
+        int skipped = 0;
+        for (Library lib : vp.libraries) {
+            if (!lib.appliesHere()) { skipped++; continue; }
+            if (lib.artifact == null || lib.artifact.path == null) continue;
+            libs.add(lib.artifact.to(libPath(lib.artifact.path)));
+        }
+        log("Found " + libs.size() + " library artifacts (" + skipped + " excluded by rules)");
+
+        // Classpath order is fixed up front, independent of download completion order
+        AtomicInteger done = new AtomicInteger(0);
+        Map<Path, Artifact> missing = new LinkedHashMap<>();
+        for (Artifact lib : libs) {
+            classpath.append(lib.target.toString()).append(File.pathSeparator);
+            if (isIntact(lib.target, lib.size, metrics)) done.incrementAndGet();
+            else missing.putIfAbsent(lib.target, lib);
+        }
+        updateProgress(done.get(), libs.size(), "Libraries");
+
+        List<String> failures = new LibraryResolver(LIB_CONCURRENCY, metrics)
+                .resolve(new ArrayList<>(missing.values()), libs.size(), done);
+        if (!failures.isEmpty()) {
+            logErr(failures.size() + " of " + missing.size() + " library download(s) failed:\n  "
+                    + String.join("\n  ", failures));
+        }
+        log("Libraries resolved: " + libs.size() + " (" + (missing.size() - failures.size())
+                + " downloaded, " + (libs.size() - missing.size()) + " cached)");
+        return failures.isEmpty();
+    }
+
+    /**
+     * Downloads missing libraries on the shared I/O lane, at most
+     * {@code workers} at a time per launch, and collects every failure, in
+     * classpath order, into one report.
+     */
+    class LibraryResolver {
+        final int workers;
+        final LaunchMetrics metrics;
+
+        LibraryResolver(int workers, LaunchMetrics metrics) {
+            this.workers = Math.max(1, workers);
+            this.metrics = metrics;
+        }
+
+        List<String> resolve(List<Artifact> missing, int total, AtomicInteger done) {
+            List<String> failures = new ArrayList<>();
+            if (missing.isEmpty()) return failures;
+
+            List<Callable<Void>> jobs = new ArrayList<>();
+            for (Artifact lib : missing) {
+                jobs.add(() -> {
+                    try {
+                        Files.createDirectories(lib.target.getParent());
+                        fetchToFile(lib.url, lib.target, LIB_DIR.relativize(lib.target).toString(),
+                                lib.sha1, lib.size, 30, Priority.CRITICAL, metrics, null);
+                    } finally {
+                        updateProgress(done.incrementAndGet(), total, "Libraries");
+                    }
+                    return null;
+                });
+            }
+            TaskScheduler.Batch<Void> run = TASKS.fanOut(TASKS.io, workers, jobs);
+            for (int i = 0; i < jobs.size(); i++) {
+                try {
+                    run.results.get(i).get();
+                } catch (ExecutionException e) {
+                    failures.add(LIB_DIR.relativize(missing.get(i).target) + " — "
+                            + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    run.cancel();
+                    failures.add("interrupted before " + LIB_DIR.relativize(missing.get(i).target));
+                    break;
+                }
+            }
+            return failures;
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  PROCESS SUPERVISOR
+    // ═══════════════════════════════════════════════════════════════════
+    /** One running game: its process, output and the latest resource sample */
+    final class GameProcess {
+        final String name;
+        final Path   gameDir;
+        final Process proc;
+        final long   started = System.nanoTime();
+        final RollingLogWriter gameLog;
+        final LogPipeline out = new LogPipeline();
+        Thread reader;
+        CompletableFuture<Integer> exit;        // completes once the exit is fully reported
+        // Latest sample; -1 when the platform does not report it
+        volatile long cpuNanos = -1, rssBytes = -1, peakRssBytes = -1;
+        long reportedAt;        // nanoTime of the last ps/tasklist sample; 0 before the first
+
+        GameProcess(String name, Path gameDir, Process proc, RollingLogWriter gameLog) {
+            this.name = name;
+            this.gameDir = gameDir;
+            this.proc = proc;
+            this.gameLog = gameLog;
+        }
+
+        String stats() {
+            long up = (System.nanoTime() - started) / 1_000_000_000L;
+            return String.format("pid %d | up %d:%02d | CPU %s | RSS %s (peak %s)", proc.pid(), up / 60, up % 60,
+                    cpuNanos < 0 ? "n/a" : String.format("%.1f s", cpuNanos / 1e9),
+                    megabytes(rssBytes), megabytes(peakRssBytes));
+        }
+    }
+
+    /**
+     * Tracks every game started from this launcher, so several can run side by
+     * side. Each gets a dedicated reader thread feeding its own console tab (or
+     * stdout when headless) and its session log, and a sampler reports CPU time
+     * through ProcessHandle and resident memory ({@link #residentMemory}) every
+     * couple of seconds while any game runs. Where memory takes a ps or tasklist
+     * spawn, that runs every REPORT_MS at most, and in the window only for the
+     * game whose stats are on screen. Exit is observed through Process.onExit
+     * and reported on the I/O lane, so no thread waits on a game unless a
+     * caller asks to.
+     */
+    class ProcessSupervisor {
+        static final int SAMPLE_MS = 2_000;
+        static final int REPORT_MS = 10_000;
+
+        final Map<Long, GameProcess> live = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> launches = new ConcurrentHashMap<>();
+        private ScheduledExecutorService sampler;
+
+        GameProcess attach(String baseName, Path gameDir, Process proc, RollingLogWriter gameLog) {
+            int n = launches.computeIfAbsent(baseName, k -> new AtomicInteger()).incrementAndGet();
+            GameProcess gp = new GameProcess(n == 1 ? baseName : baseName + " #" + n, gameDir, proc, gameLog);
+            live.put(proc.pid(), gp);
+            startSampler();
+            if (ui != null) ui.gameStarted(gp);
+            log("Started '" + gp.name + "' (pid " + proc.pid() + "); " + live.size() + " game(s) running");
+
+            // Output only enqueues (console pipeline, session log), so the reader
+            // keeps draining the pipe whatever the disk or the EDT are doing
+            gp.reader = TASKS.reader(gp.name, () -> {
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        if (headless) log("[MC] " + line);
+                        else gp.out.push(line);
+                        gameLog.offer(line + "\n");
+                    }
+                } catch (IOException e) {
+                    logErr("Output of '" + gp.name + "' closed: " + e.getMessage());
+                } finally {
+                    sample(gp, true);   // end of output: the last chance to see the process's totals
+                    gameLog.close();
+                }
+            });
+            // exited() waits for the reader, so keep it off the common pool onExit completes on
+            gp.exit = proc.onExit().thenApplyAsync(p -> exited(gp), TASKS.io);
+            return gp;
+        }
+
+        /** Blocks until the game exits and its output is fully drained */
+        int waitFor(GameProcess gp) throws InterruptedException, ExecutionException {
+            return gp.exit.get();
+        }
+
+        private synchronized void startSampler() {
+            if (sampler != null) return;
+            sampler = Executors.newSingleThreadScheduledExecutor(daemonThreads("proc-sampler-"));
+            sampler.scheduleWithFixedDelay(this::sampleAll, 0, SAMPLE_MS, TimeUnit.MILLISECONDS);
+        }
+
+        /** Once the last game is gone; the next attach starts a new one */
+        private synchronized void stopSampler() {
+            if (sampler == null || !live.isEmpty()) return;
+            sampler.shutdown();
+            sampler = null;
+        }
+
+        void sampleAll() {
+            long now = System.nanoTime();
+            GameProcess shown = ui != null ? ui.statsShown : null;
+            for (GameProcess gp : live.values()) {
+                boolean report = (ui == null || gp == shown)
+                        && (gp.reportedAt == 0 || now - gp.reportedAt >= REPORT_MS * 1_000_000L);
+                if (report) gp.reportedAt = now;
+                sample(gp, report);
+            }
+            if (ui != null && !live.isEmpty()) ui.gamesSampled();
+        }
+
+        /** report: memory may come from ps or tasklist where /proc is missing */
+        void sample(GameProcess gp, boolean report) {
+            Optional<Duration> cpu = gp.proc.toHandle().info().totalCpuDuration();
+            if (cpu.isPresent()) gp.cpuNanos = cpu.get().toNanos();
+            long[] mem = residentMemory(gp.proc.pid(), report);
+            if (mem[0] >= 0) gp.rssBytes = mem[0];
+            if (mem[1] >= 0 || mem[0] >= 0) gp.peakRssBytes = Math.max(gp.peakRssBytes, Math.max(mem[0], mem[1]));
+        }
+
+        private int exited(GameProcess gp) {
+            try {
+                gp.reader.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            live.remove(gp.proc.pid());
+            stopSampler();
+            int exit = gp.proc.exitValue();
+            long up = (System.nanoTime() - gp.started) / 1_000_000_000L;
+            log(String.format("'%s' exited with code %d after %d:%02d — CPU %s, peak RSS %s; %d game(s) running",
+                    gp.name, exit, up / 60, up % 60,
+                    gp.cpuNanos < 0 ? "n/a" : String.format("%.1f s", gp.cpuNanos / 1e9),
+                    megabytes(gp.peakRssBytes), live.size()));
+            if (gp.gameLog.dropped.get() > 0) {
+                logErr("Session log of '" + gp.name + "' skipped " + gp.gameLog.dropped.get()
+                        + " chunks while the disk lagged behind");
+            }
+            if (ui != null) ui.gameExited(gp, exit);
+            return exit;
+        }
+
+    }
+
+    /**
+     * Resident and peak resident bytes of a process; -1 where unavailable.
+     * Linux has both in /proc (VmRSS, VmHWM). The JDK cannot read another
+     * process's memory, so elsewhere ps (macOS) or tasklist (Windows) report
+     * the current figure, if spawn allows it, and the peak is the highest
+     * sample seen.
+     */
+    static long[] residentMemory(long pid, boolean spawn) {
+        long[] mem = {-1, -1};
+        Path status = Paths.get("/proc", String.valueOf(pid), "status");
+        if (!Files.isReadable(status)) {
+            if (!spawn) return mem;
+            long kb = reportedResidentKb(pid);
+            if (kb >= 0) mem[0] = kb * 1024;
+            return mem;
+        }
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) mem[0] = kilobytes(line) * 1024;
+                else if (line.startsWith("VmHWM:")) mem[1] = kilobytes(line) * 1024;
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Gone between the check and the read
+        }
+        return mem;
+    }
+
+    /** Resident kilobytes as printed by ps or tasklist; -1 if the tool is missing or the process gone */
+    private static long reportedResidentKb(long pid) {
+        List<String> cmd = hostOsName().equals("windows")
+                ? Arrays.asList("tasklist", "/FI", "PID eq " + pid, "/FO", "CSV", "/NH")
+                : Arrays.asList("ps", "-o", "rss=", "-p", String.valueOf(pid));
+        try {
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            if (!p.waitFor(2, TimeUnit.SECONDS) || p.exitValue() != 0) {
+                p.destroyForcibly();
+                return -1;
+            }
+            String out;
+            try (InputStream in = p.getInputStream()) {
+                out = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+            // ps: "123456"; tasklist: "javaw.exe","1234","Console","1","1,234,567 K"
+            if (out.startsWith("\"")) {
+                int last = out.lastIndexOf("\",\"");
+                if (last < 0) return -1;
+                out = out.substring(last + 3);
+            }
+            String digits = out.replaceAll("[^0-9]", "");
+            return digits.isEmpty() ? -1 : Long.parseLong(digits);
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static long kilobytes(String statusLine) {
+        String v = statusLine.substring(statusLine.indexOf(':') + 1).trim();
+        return Long.parseLong(v.substring(0, v.indexOf(' ') > 0 ? v.indexOf(' ') : v.length()));
+    }
+
+    static String megabytes(long bytes) {
+        return bytes < 0 ? "n/a" : String.format("%.0f MB", bytes / 1048576.0);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  INSTANCES
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * A named game directory, instances/&lt;name&gt;/.minecraft, with its own
+     * saves, configs, resource packs and mods/, plus the version, loader and
+     * JVM settings it launches with (instance.properties, next to it).
+     * Versions, libraries and assets stay in the shared root, so an instance
+     * holds only what is really its own and switching between packs is just
+     * a different --gameDir; nothing is moved.
+     */
+    static final class Instance {
+        static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._ -]{0,63}");
+
+        final String name;
+        final Path   dir, gameDir;
+        String  version = "", ramMb = "", javaPath = "", jvmArgs = "";
+        boolean fabric;
+
+        private Instance(String name) {
+            this.name = name;
+            this.dir = INST_DIR.resolve(name);
+            this.gameDir = dir.resolve(".minecraft");
+        }
+
+        /** The saved instance, or a blank one to be saved under this name */
+        static Instance open(String name) throws IOException {
+            if (!NAME.matcher(name).matches()) {
+                throw new IOException("Invalid instance name '" + name
+                        + "' (letters, digits, '.', '_', '-' and spaces; up to 64)");
+            }
+            Instance inst = new Instance(name);
+            Path props = inst.dir.resolve("instance.properties");
+            if (Files.exists(props)) {
+                Properties p = new Properties();
+                try (InputStream in = Files.newInputStream(props)) {
+                    p.load(in);
+                }
+                inst.version  = p.getProperty("version", "");
+                inst.fabric   = "fabric".equals(p.getProperty("loader"));
+                inst.ramMb    = p.getProperty("ram", "");
+                inst.javaPath = p.getProperty("java", "");
+                inst.jvmArgs  = p.getProperty("jvmArgs", "");
+            }
+            return inst;
+        }
+
+        boolean exists() {
+            return Files.exists(dir.resolve("instance.properties"));
+        }
+
+        void save() throws IOException {
+            Files.createDirectories(gameDir.resolve("mods"));
+            Properties p = new Properties();
+            p.setProperty("version", version);
+            p.setProperty("loader", fabric ? "fabric" : "vanilla");
+            p.setProperty("ram", ramMb);
+            p.setProperty("java", javaPath);
+            p.setProperty("jvmArgs", jvmArgs);
+            try (OutputStream out = Files.newOutputStream(dir.resolve("instance.properties"))) {
+                p.store(out, APP + " instance " + name);
+            }
+        }
+
+        LaunchOptions options(String jsonUrl, String user, String defaultJava, boolean fabOpt, boolean fullscreen) {
+            List<String> extra = new ArrayList<>();
+            for (String a : jvmArgs.trim().split("\\s+")) {
+                if (!a.isEmpty()) extra.add(a);
+            }
+            return new LaunchOptions(version, jsonUrl, user, ramMb.isEmpty() ? "2048" : ramMb,
+                    javaPath.isEmpty() ? defaultJava : javaPath, fabric, fabOpt, fullscreen,
+                    name, gameDir, extra);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  TASK SCHEDULER
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Background work split by what it waits on, so one kind cannot starve
+     * another:
+     *   io  — network, disk and launches; one virtual thread per task on
+     *         Java 21+, an unbounded cached pool of daemon threads before that
+     *   cpu — hashing and parsing; platform threads, one per core
+     *   ui  — work whose result feeds the UI (version list); a single thread,
+     *         so results arrive in the order they were asked for
+     * Each child process gets its own reader thread instead of holding a lane
+     * for as long as the game runs. Virtual threads are looked up reflectively
+     * so the launcher still compiles and runs on Java 11. Capped fan-outs
+     * (libraries, bulk installs, verification) go through {@link #fanOut}.
+     */
+    static final class TaskScheduler {
+        final ThreadFactory   virtual = virtualThreads();
+        final ExecutorService io;
+        final ExecutorService cpu;
+        final ExecutorService ui;
+        final int cpuWorkers = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        TaskScheduler() {
+            io = new Lane(virtual != null ? threadPerTask(virtual)
+                    : Executors.newCachedThreadPool(daemonThreads("io-")));
+            cpu = new Lane(Executors.newFixedThreadPool(cpuWorkers, daemonThreads("cpu-")));
+            ui = Executors.newSingleThreadExecutor(daemonThreads("ui-feed-"));
+        }
+
+        /**
+         * Runs jobs on a lane with at most {@code limit} in flight: that many
+         * workers take the jobs in order, so a capped fan-out never parks one
+         * thread per job. Results line up with the jobs.
+         */
+        <T> Batch<T> fanOut(ExecutorService lane, int limit, List<? extends Callable<T>> jobs) {
+            Batch<T> batch = new Batch<>();
+            for (int i = 0; i < jobs.size(); i++) batch.results.add(new CompletableFuture<>());
+            AtomicInteger next = new AtomicInteger();
+            int workers = Math.min(Math.max(1, limit), jobs.size());
+            for (int w = 0; w < workers; w++) {
+                lane.execute(() -> {
+                    for (int i; (i = next.getAndIncrement()) < jobs.size(); ) {
+                        if (!batch.enter()) return;
+                        CompletableFuture<T> result = batch.results.get(i);
+                        try {
+                            result.complete(jobs.get(i).call());
+                        } catch (Throwable e) {
+                            result.completeExceptionally(e);
+                        } finally {
+                            batch.exit();
+                        }
+                    }
+                });
+            }
+            return batch;
+        }
+
+        /**
+         * Results of one {@link #fanOut}. cancel() skips the jobs not yet
+         * started and interrupts the running ones; awaitIdle() then waits
+         * until those have actually returned, for callers that are about to
+         * close something the jobs still use.
+         */
+        static final class Batch<T> {
+            final List<CompletableFuture<T>> results = new ArrayList<>();
+            private final Set<Thread> running = new HashSet<>();
+            private boolean cancelled;
+
+            private synchronized boolean enter() {
+                if (cancelled) return false;
+                running.add(Thread.currentThread());
+                return true;
+            }
+
+            private synchronized void exit() {
+                running.remove(Thread.currentThread());
+                if (cancelled) Thread.interrupted();    // keep our interrupt off the lane's next task
+                notifyAll();
+            }
+
+            synchronized void cancel() {
+                cancelled = true;
+                for (CompletableFuture<T> r : results) r.cancel(false);
+                for (Thread t : running) t.interrupt();
+            }
+
+            synchronized void awaitIdle() {
+                boolean interrupted = false;
+                while (!running.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * A shared pool that runs each task with its submitter's download
+         * class, so work a background install hands to a lane still fetches at
+         * PREFETCH, whichever pooled thread picks it up.
+         */
+        static final class Lane extends AbstractExecutorService {
+            final ExecutorService pool;
+
+            Lane(ExecutorService pool) {
+                this.pool = pool;
+            }
+
+            @Override
+            public void execute(Runnable task) {
+                pool.execute(DOWNLOADS.carry(task));
+            }
+
+            @Override
+            public void shutdown() {
+                pool.shutdown();
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return pool.shutdownNow();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return pool.isShutdown();
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return pool.isTerminated();
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                return pool.awaitTermination(timeout, unit);
+            }
+        }
+
+        /** Starts a dedicated thread that drains one process's output */
+        Thread reader(String name, Runnable body) {
+            Thread t = virtual != null ? virtual.newThread(body) : new Thread(body);
+            t.setName("reader-" + name);
+            if (!t.isDaemon()) t.setDaemon(true);
+            t.start();
+            return t;
+        }
+
+        String describe() {
+            return (virtual != null ? "virtual threads" : "cached platform threads") + " for I/O, "
+                    + cpuWorkers + " CPU workers, 1 UI feeder";
+        }
+
+        void shutdownNow() {
+            io.shutdownNow();
+            cpu.shutdownNow();
+            ui.shutdownNow();
+        }
+
+        /** Thread.ofVirtual().name("io-", 0).factory(), or null before Java 21 */
+        static ThreadFactory virtualThreads() {
+            try {
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                Object b = Thread.class.getMethod("ofVirtual").invoke(null);
+                b = builder.getMethod("name", String.class, long.class).invoke(b, "io-", 0L);
+                return (ThreadFactory) builder.getMethod("factory").invoke(b);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return null;    // older JRE, or Java 19/20 without --enable-preview
+            }
+        }
+
+        static ExecutorService threadPerTask(ThreadFactory factory) {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(factory);
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  NATIVES EXTRACTION
+    // ═══════════════════════════════════════════════════════════════════
+    /** Returns false if any native jar failed to download or extract */
+    boolean extractNatives(VersionProfile vp, Path nativesDir, LaunchMetrics metrics) {
+        // Libraries map OS → classifier ("natives": {"linux": "natives-linux"}),
+        // and the classifier names a jar under downloads.classifiers
+        log("Looking for natives for " + hostOsName() + "/" + hostArch());
+
+        int count = 0, cached = 0;
+        boolean ok = true;
+        for (Library lib : vp.libraries) {
+            if (!lib.appliesHere()) continue;
+            Download d = lib.nativesForHost();
+            if (d == null || d.path == null) continue;
+            String path = d.path;
+            Path jarFile = libPath(path);
+            Artifact nat = d.to(jarFile);
+
+            try {
+                if (!isIntact(jarFile, nat.size, metrics)) {
+                    Files.createDirectories(jarFile.getParent());
+                    download(nat.url, jarFile, "native: " + path, nat.sha1, nat.size, metrics);
+                }
+                // .so / .dll / .dylib / .jnilib: extracted once per jar build, then linked in
+                Path set = nativesCacheDir(jarFile, nat.sha1, lib.extractExclude);
+                List<String> names = readNativesMarker(set);
+                metrics.cache("natives", names != null);
+                if (names != null) cached++;
+                else names = extractToCache(jarFile, set, lib.extractExclude);
+                linkNatives(set, names, nativesDir);
+                count++;
+            } catch (Exception e) {
+                logErr("Native extract fail: " + path + " — " + e.getMessage());
+                ok = false;
+            }
+        }
+        log("Natives: " + count + " jar(s) in " + nativesDir + " (" + cached + " already extracted)");
+        return ok;
+    }
+
+    static final String NATIVES_MARKER = ".extracted";
+
+    /**
+     * Extracted natives are cached per source jar and platform under
+     * natives/cache/&lt;sha1&gt;-&lt;os&gt;-&lt;arch&gt;/, so versions built on the same
+     * LWJGL share one extraction. A set is complete once its marker (the list
+     * of files) exists; from then on the jar is never opened again. An
+     * exclude list beyond META-INF/ yields a different set, so it is part of
+     * the key.
+     */
+    static Path nativesCacheDir(Path jarFile, String sha1, List<String> exclude) throws IOException {
+        String id = sha1 != null ? sha1.toLowerCase(Locale.ROOT)
+                : "size" + Files.size(jarFile) + "-" + Files.getLastModifiedTime(jarFile).toMillis();
+        List<String> extra = new ArrayList<>(exclude);
+        extra.remove("META-INF/");
+        if (!extra.isEmpty()) {
+            Collections.sort(extra);
+            id += "-x" + Integer.toHexString(String.join("\n", extra).hashCode());
+        }
+        return NAT_DIR.resolve("cache").resolve(id + "-" + hostOsName() + "-" + hostArch());
+    }
+
+    /** The extracted file names, or null if the set is missing or incomplete */
+    static List<String> readNativesMarker(Path set) throws IOException {
+        Path marker = set.resolve(NATIVES_MARKER);
+        return Files.exists(marker) ? Files.readAllLines(marker, StandardCharsets.UTF_8) : null;
+    }
+
+    /** Extracts into a scratch directory and publishes it with one rename; a racing extractor's copy wins */
+    static List<String> extractToCache(Path jarFile, Path set, List<String> exclude) throws IOException {
+        Path tmp = set.resolveSibling(set.getFileName() + ".tmp-" + Thread.currentThread().getId());
+        deleteTree(tmp);
+        Files.createDirectories(tmp);
+        try {
+            extractNativeJar(jarFile, tmp, exclude);
+        } catch (IOException e) {
+            deleteTree(tmp);
+            throw e;
+        }
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(tmp)) {
+            for (Path p : ds) names.add(p.getFileName().toString());
+        }
+        Collections.sort(names);
+        Files.write(tmp.resolve(NATIVES_MARKER), names, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, set, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteTree(tmp);
+            List<String> theirs = readNativesMarker(set);
+            if (theirs == null) throw e;
+            return theirs;
+        }
+        return names;
+    }
+
+    /** Hard-links (or copies) a cached set into a version's natives directory */
+    static void linkNatives(Path set, List<String> names, Path nativesDir) throws IOException {
+        for (String name : names) {
+            Path out = nativesDir.resolve(name);
+            if (Files.exists(out)) continue;    // first jar providing a name wins, as before
+            try {
+                Files.createLink(out, set.resolve(name));
+            } catch (FileAlreadyExistsException e) {
+                // Another launch of this version linked it first
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(set.resolve(name), out);
+            }
+        }
+    }
+
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (java.util.stream.Stream<Path> walk = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    static void extractNativeJar(Path jarFile, Path targetDir) throws IOException {
+        extractNativeJar(jarFile, targetDir, Collections.emptyList());
+    }
+
+    /**
+     * Picks entries from the jar's central directory, so nothing but the native
+     * libraries themselves is ever inflated, then inflates and writes them in
+     * parallel on the CPU lane.
+     * META-INF/ and the library's extract.exclude prefixes are skipped; when
+     * two entries share a file name the first one listed wins.
+     */
+    static void extractNativeJar(Path jarFile, Path targetDir, List<String> exclude) throws IOException {
+        try (ZipFile zip = new ZipFile(jarFile.toFile())) {
+            Map<Path, ZipEntry> wanted = new LinkedHashMap<>();
+            for (Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements(); ) {
+                ZipEntry entry = en.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || name.startsWith("META-INF") || !isNativeLibrary(name)) continue;
+                if (exclude.stream().anyMatch(name::startsWith)) continue;
+                Path out = targetDir.resolve(Paths.get(name).getFileName());
+                if (!wanted.containsKey(out) && !Files.exists(out)) wanted.put(out, entry);
+            }
+            if (wanted.size() <= 1) {
+                for (Map.Entry<Path, ZipEntry> w : wanted.entrySet()) writeEntry(zip, w.getValue(), w.getKey());
+                return;
+            }
+            List<Callable<Void>> writes = new ArrayList<>();
+            for (Map.Entry<Path, ZipEntry> w : wanted.entrySet()) {
+                writes.add(() -> {
+                    writeEntry(zip, w.getValue(), w.getKey());
+                    return null;
+                });
+            }
+            TaskScheduler.Batch<Void> run = TASKS.fanOut(TASKS.cpu, TASKS.cpuWorkers, writes);
+            IOException first = null;
+            for (CompletableFuture<Void> f : run.results) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (first == null) {
+                        first = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                : new IOException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    // No write may outlive the ZipFile it reads from
+                    run.cancel();
+                    run.awaitIdle();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted extracting " + jarFile.getFileName());
+                }
+            }
+            if (first != null) throw first;
+        }
+    }
+
+    static boolean isNativeLibrary(String name) {
+        return name.endsWith(".so") || name.endsWith(".dll") || name.endsWith(".dylib") || name.endsWith(".jnilib");
+    }
+
+    /** A write that fails part way removes its file, so a later pass does not take it as extracted */
+    private static void writeEntry(ZipFile zip, ZipEntry entry, Path out) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            Files.copy(in, out);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (IOException e) {
+            Files.deleteIfExists(out);
+            throw e;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  ASSET INDEX & OBJECTS
+    // ═══════════════════════════════════════════════════════════════════
+    /** Returns false if the index or any object could not be fetched */
+    boolean downloadAssetIndex(VersionProfile vp, LaunchMetrics metrics) {
+        String indexId = vp.assetIndexId();
+        Path indexFile = ASS_DIR.resolve("indexes").resolve(indexId + ".json");
+        Artifact index = vp.assetIndex != null ? vp.assetIndex.to(indexFile) : null;
+        if (index == null || index.url == null) {
+            log("No asset index URL found — skipping asset download");
+            return true;
+        }
+
+        try {
+            if (!isIntact(indexFile, index.size, metrics)) {
+                log("Downloading asset index: " + indexId);
+                download(index.url, indexFile, "asset index", index.sha1, index.size, metrics);
+            }
+
+            Set<String> sounds = new HashSet<>();
+            Map<String, Long> objects = readAssetObjects(indexFile, sounds);
+            log("Asset index has " + objects.size() + " objects (" + sounds.size() + " sounds, fetched last)");
+
+            AssetFetcher fetcher = new AssetFetcher(ASSET_CONCURRENCY, metrics);
+            int downloaded = fetcher.fetchAll(objects, sounds);
+            if (fetcher.failed.get() > 0) {
+                logErr("Assets: " + fetcher.failed.get() + " object(s) failed after "
+                        + ASSET_RETRIES + " attempts");
+            }
+            log("Assets: " + downloaded + " newly downloaded, " +
+                    fetcher.cached.get() + " cached");
+            return fetcher.failed.get() == 0;
+        } catch (Exception e) {
+            logErr("Asset download error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Concurrent asset object downloader. A fixed set of workers on the I/O lane
+     * drains a bounded queue, so at most {@code inFlight} requests are open at once and the producer
+     * blocks instead of queueing thousands of pending objects. Sounds are queued
+     * after everything else at DEFERRED priority, since the game streams them in
+     * after startup. Each object is retried with a short backoff before it is
+     * counted as failed.
+     */
+    class AssetFetcher {
+        final int inFlight;
+        final LaunchMetrics metrics;
+        final AtomicInteger downloaded = new AtomicInteger(0);
+        final AtomicInteger cached     = new AtomicInteger(0);
+        final AtomicInteger failed     = new AtomicInteger(0);
+        final AtomicInteger done       = new AtomicInteger(0);
+
+        AssetFetcher(int inFlight, LaunchMetrics metrics) {
+            this.inFlight = Math.max(1, inFlight);
+            this.metrics = metrics;
+        }
+
+        /** Fetch every missing object (hash → size), sounds last; returns the number newly downloaded. */
+        int fetchAll(Map<String, Long> objects, Set<String> sounds) throws InterruptedException {
+            int total = objects.size();
+            BlockingQueue<String> queue = new ArrayBlockingQueue<>(inFlight * 4);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < inFlight; i++) {
+                workers.add(TASKS.io.submit(() -> work(queue, objects, sounds, total)));
+            }
+            try {
+                produce:
+                for (boolean soundPass : new boolean[]{false, true}) {
+                    for (Map.Entry<String, Long> obj : objects.entrySet()) {
+                        String hash = obj.getKey();
+                        if (sounds.contains(hash) != soundPass) continue;
+                        if (isIntact(objectPath(hash), obj.getValue(), metrics)) {
+                            cached.incrementAndGet();
+                            tick(total);
+                        } else if (!hand(queue, hash, workers)) {
+                            break produce;  // every worker died; get() below reports why
+                        }
+                    }
+                }
+            } finally {
+                // One end marker per worker; each exits after taking its own
+                for (int i = 0; i < workers.size(); i++) {
+                    if (!hand(queue, ASSET_END, workers)) break;
+                }
+            }
+            for (Future<?> w : workers) {
+                try {
+                    w.get();
+                } catch (ExecutionException e) {
+                    throw new CompletionException(e.getCause());
+                }
+            }
+            if (total % 50 != 0) updateProgress(total, total, "Assets");   // else the last tick showed it
+            return downloaded.get();
+        }
+
+        /** Queues item, unless every worker has stopped and no one would ever take it */
+        private boolean hand(BlockingQueue<String> queue, String item, List<Future<?>> workers)
+                throws InterruptedException {
+            while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                if (workers.stream().allMatch(Future::isDone)) return false;
+            }
+            return true;
+        }
+
+        void work(BlockingQueue<String> queue, Map<String, Long> objects, Set<String> sounds, int total) {
+            try {
+                String hash;
+                while ((hash = queue.take()) != ASSET_END) {
+                    Priority p = sounds.contains(hash) ? Priority.DEFERRED : Priority.NORMAL;
+                    if (fetchOne(hash, objects.get(hash), p)) downloaded.incrementAndGet();
+                    else failed.incrementAndGet();
+                    tick(total);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean fetchOne(String hash, long size, Priority priority) throws InterruptedException {
+            String prefix = hash.substring(0, 2);
+            Path objPath = objectPath(hash);
+            String objUrl = RESOURCES_URL + prefix + "/" + hash;
+            for (int attempt = 1; attempt <= ASSET_RETRIES; attempt++) {
+                try {
+                    Files.createDirectories(objPath.getParent());
+                    // Asset objects are named by their own SHA-1
+                    downloadQuiet(objUrl, objPath, hash, size, priority, metrics);
+                    return true;
+                } catch (InterruptedIOException e) {
+                    return false;   // cancelled: not worth retrying
+                } catch (Exception e) {
+                    // A partial .part is kept, so the next attempt resumes it
+                    if (attempt < ASSET_RETRIES) Thread.sleep(250L * attempt);
+                }
+            }
+            return false;
+        }
+
+        void tick(int total) {
+            int n = done.incrementAndGet();
+            if (n % 50 == 0) updateProgress(n, total, "Assets");
+        }
+
+        Path objectPath(String hash) {
+            return ASS_DIR.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash);
+        }
+    }
+
+    /** Queue end marker; compared by identity so no real hash can collide with it */
+    static final String ASSET_END = new String("<end>");
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  INSTALLATION VERIFICATION
+    // ═══════════════════════════════════════════════════════════════════
+    void onVerifyClick() {
+        if (launching) {
+            logErr("Cannot verify while a launch is in progress");
+            return;
+        }
+        TASKS.io.submit(() -> {
+            try {
+                verifyInstallation();
+            } catch (Exception e) {
+                logErr("Verification failed: " + e.getMessage());
+            } finally {
+                setStatus("Ready");
+            }
+        });
+    }
+
+    /**
+     * Re-hash every installed file that has a published SHA-1 (client JARs,
+     * libraries, natives, asset indexes and objects) on the CPU lane. Corrupt
+     * files are deleted so the next launch re-fetches only those.
+     */
+    void verifyInstallation() throws Exception {
+        setStatus("Verifying installation...");
+        List<Artifact> files = collectInstalledArtifacts();
+        log("Verifying " + files.size() + " installed file(s) on " + TASKS.cpuWorkers + " CPU worker(s)...");
+
+        AtomicInteger done = new AtomicInteger(0);
+        List<Callable<Boolean>> checks = new ArrayList<>();
+        for (Artifact a : files) {
+            checks.add(() -> {
+                boolean ok = verifyFile(a);
+                int n = done.incrementAndGet();
+                if (n % 100 == 0) updateProgress(n, files.size(), "Verify");
+                return ok;
+            });
+        }
+        TaskScheduler.Batch<Boolean> run = TASKS.fanOut(TASKS.cpu, TASKS.cpuWorkers, checks);
+        List<Artifact> bad = new ArrayList<>();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                if (!run.results.get(i).get()) bad.add(files.get(i));
+            }
+        } catch (InterruptedException e) {
+            run.cancel();
+            throw e;
+        }
+        updateProgress(files.size(), files.size(), "Verify");
+
+        for (Artifact a : bad) {
+            logErr("Corrupt: " + a.target);
+            Files.deleteIfExists(a.target);
+        }
+        if (bad.isEmpty()) log("Verification passed: all " + files.size() + " file(s) intact");
+        else log("Verification removed " + bad.size() + " corrupt file(s); they will be re-downloaded");
+    }
+
+    boolean verifyFile(Artifact a) {
+        try {
+            if (a.size >= 0 && Files.size(a.target) != a.size) return false;
+            return a.sha1 == null || sha1Of(a.target).equalsIgnoreCase(a.sha1);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Every present file referenced by an installed version, deduplicated by path */
+    List<Artifact> collectInstalledArtifacts() throws IOException {
+        Map<Path, Artifact> found = new LinkedHashMap<>();
+        List<Path> verDirs;
+        try (java.util.stream.Stream<Path> st = Files.list(VER_DIR)) {
+            verDirs = st.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (Path dir : verDirs) {
+            String id = dir.getFileName().toString();
+            Path jsonFile = dir.resolve(id + ".json");
+            if (!Files.exists(jsonFile)) continue;
+            VersionProfile vp = VersionProfile.load(jsonFile);
+
+            if (vp.client != null) addIfPresent(found, vp.client.to(dir.resolve(id + ".jar")));
+
+            for (Library lib : vp.libraries) {
+                List<Download> files = new ArrayList<>(lib.classifiers.values());
+                if (lib.artifact != null) files.add(lib.artifact);
+                for (Download d : files) {
+                    if (d.path != null) addIfPresent(found, d.to(libPath(d.path)));
+                }
+            }
+
+            if (vp.assetIndex == null) continue;
+            Path indexFile = ASS_DIR.resolve("indexes").resolve(vp.assetIndexId() + ".json");
+            if (found.containsKey(indexFile) || !addIfPresent(found, vp.assetIndex.to(indexFile))) {
+                continue;
+            }
+            for (Map.Entry<String, Long> obj : readAssetObjects(indexFile).entrySet()) {
+                String hash = obj.getKey();
+                Path objPath = ASS_DIR.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash);
+                addIfPresent(found, new Artifact(null, objPath, hash, obj.getValue()));
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    static boolean addIfPresent(Map<Path, Artifact> found, Artifact a) {
+        if (!Files.exists(a.target)) return false;
+        found.putIfAbsent(a.target, a);
+        return true;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  FABRIC LOADER INSTALLATION
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Prepends Fabric's libraries to classpath; returns Fabric's main class, or
+     * null if the install failed or was incomplete (launch falls back to vanilla).
+     */
+    String installFabric(String mcVersion, StringBuilder classpath, LaunchMetrics metrics) {
+        log("Installing Fabric Loader for MC " + mcVersion + "...");
+        try {
+            // Step 1: Get available loader versions from Fabric Meta
+            String metaUrl = FABRIC_META_URL + mcVersion;
+            String metaJson = httpGet(metaUrl);
+
+            // Pick the newest stable loader (the list is newest first)
+            String loaderVer = pickFabricLoader(JsonReader.of(metaJson).readTree());
+            if (loaderVer == null) {
+                logErr("Fabric: no loader found for MC " + mcVersion);
+                return null;
+            }
+            log("Fabric Loader version: " + loaderVer);
+
+            // Step 2: Get the full profile JSON from Fabric meta
+            String profileUrl = FABRIC_META_URL + mcVersion + "/" + loaderVer + "/profile/json";
+            VersionProfile profile = VersionProfile.read(JsonReader.of(httpGet(profileUrl)));
+
+            // Step 3: Extract main class (usually net.fabricmc.loader.impl.launch.knot.KnotClient)
+            String fabricMain = profile.mainClass;
+            if (fabricMain != null) {
+                log("Fabric main class: " + fabricMain);
+            }
+
+            // Step 4: Download Fabric libraries listed in the profile
+            // Each entry is {"name", "url"[, "sha1", "size", ...]}
+            int count = 0;
+            boolean ok = true;
+            for (Library lib : profile.libraries) {
+                String mavenCoord = lib.name; // e.g. net.fabricmc:fabric-loader:0.15.11
+                String repoUrl    = lib.url;  // e.g. https://maven.fabricmc.net/
+                if (mavenCoord == null || repoUrl == null) continue;
+
+                Path libPath = mavenToPath(mavenCoord);
+                if (libPath == null) continue;
+
+                Path target = LIB_DIR.resolve(libPath);
+                classpath.insert(0, target.toString() + File.pathSeparator);
+
+                if (!isIntact(target, lib.size, metrics)) {
+                    String jarUrl = repoUrl + libPath.toString().replace(File.separator, "/");
+                    try {
+                        Files.createDirectories(target.getParent());
+                        download(jarUrl, target, "fabric: " + mavenCoord, lib.sha1, lib.size, metrics);
+                        count++;
+                    } catch (Exception e) {
+                        logErr("Fabric lib fail: " + mavenCoord + " — " + e.getMessage());
+                        ok = false;
+                    }
+                }
+            }
+            log("Fabric: downloaded " + count + " new libraries");
+
+            // Step 5: Record Fabric's main class; the launch uses it in place of vanilla's
+            if (fabricMain != null) {
+                Path fabricMarker = VER_DIR.resolve(mcVersion).resolve("fabric_main.txt");
+                Files.write(fabricMarker, fabricMain.getBytes(StandardCharsets.UTF_8));
+                log("Fabric installation complete");
+            }
+            return ok ? fabricMain : null;
+
+        } catch (Exception e) {
+            logErr("Fabric installation failed: " + e.getMessage());
+            log("You can manually install Fabric from https://fabricmc.net/use/installer/");
+            return null;
+        }
+    }
+
+    /** Newest stable loader version from Fabric meta's loader list, else the newest one */
+    static String pickFabricLoader(Object meta) {
+        if (!(meta instanceof List)) return null;
+        String newest = null;
+        for (Object entry : (List<?>) meta) {
+            if (!(entry instanceof Map)) continue;
+            Object loader = ((Map<?, ?>) entry).get("loader");
+            if (!(loader instanceof Map)) continue;
+            Object ver = ((Map<?, ?>) loader).get("version");
+            if (!(ver instanceof String)) continue;
+            if (newest == null) newest = (String) ver;
+            if (Boolean.TRUE.equals(((Map<?, ?>) loader).get("stable"))) return (String) ver;
+        }
+        return newest;
+    }
+
+    /** Library path from a version JSON ("a/b/c.jar") resolved under LIB_DIR */
+    static Path libPath(String path) {
+        return LIB_DIR.resolve(path.replace("/", File.separator));
+    }
+
+    /** Convert Maven coordinate (group:artifact:version) to relative jar path */
+    static Path mavenToPath(String coord) {
+        String[] parts = coord.split(":");
+        if (parts.length < 3) return null;
+        String group    = parts[0].replace('.', File.separatorChar);
+        String artifact = parts[1];
+        String version  = parts[2];
+        return Paths.get(group, artifact, version, artifact + "-" + version + ".jar");
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  NETWORK & IO UTILITIES
+    // ═══════════════════════════════════════════════════════════════════
+    String httpGet(String urlStr) throws Exception {
+        HttpResponse<String> resp = Http.CLIENT.send(
+                Http.request(urlStr, 15).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (resp.statusCode() != 200) {
+            throw new IOException("HTTP " + resp.statusCode() + " for " + urlStr);
+        }
+        return resp.body();
+    }
+
+    void download(String urlStr, Path target, String label, LaunchMetrics metrics) throws Exception {
+        download(urlStr, target, label, null, -1, metrics);
+    }
+
+    /**
+     * Download with integrity check: the SHA-1 is computed while streaming, and
+     * a size or hash mismatch deletes the file and fails. Pass null/-1 to skip.
+     * Files fetched this way are on the launch's critical path.
+     */
+    void download(String urlStr, Path target, String label, String sha1, long size, LaunchMetrics metrics)
+            throws Exception {
+        int[] lastPct = {-1};
+        fetchToFile(urlStr, target, label, sha1, size, 30, Priority.CRITICAL, metrics, pct -> {
+            if (pct == lastPct[0]) return;
+            lastPct[0] = pct;
+            if (ui != null) ui.showProgress(pct, null);
+        });
+    }
+
+    /** Silent download — no progress bar updates (for bulk asset downloads) */
+    void downloadQuiet(String urlStr, Path target, String sha1, long size, Priority priority,
+                       LaunchMetrics metrics) throws Exception {
+        fetchToFile(urlStr, target, target.getFileName().toString(), sha1, size, 10, priority, metrics, null);
+    }
+
+    // Downloads in progress, by target: a second request for the same file waits for the first
+    static final ConcurrentHashMap<Path, Transfer> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /** One download in progress; a more urgent request that joins it raises its priority */
+    static final class Transfer {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        // Of the launch that started it
+        final LaunchMetrics metrics;
+        final CancelToken   token;
+        volatile Priority priority;
+        volatile DownloadScheduler.Ticket ticket;
+
+        Transfer(Priority priority, LaunchMetrics metrics, CancelToken token) {
+            this.priority = priority;
+            this.metrics = metrics;
+            this.token = token;
+        }
+    }
+
+    /**
+     * Streams into {@code <target>.part} and atomically moves it into place only
+     * once size and hash check out, so the final path never holds a partial
+     * file. A .part left behind by an interrupted run is resumed with a Range
+     * request; servers that ignore the range simply restart the file. Callers
+     * asking for a target that is already being fetched share that download.
+     * The transfer runs when {@link #DOWNLOADS} admits it, and re-queues
+     * (keeping its .part) whenever it is preempted by more urgent work.
+     * Files with a known SHA-1 come from the shared {@link #STORE} when it
+     * already holds them, and are added to it after a verified download.
+     * Waiting on another caller's download ends early if this caller's launch
+     * is cancelled, and if that download is cancelled instead, this caller
+     * fetches the file itself.
+     */
+    void fetchToFile(String urlStr, Path target, String label, String sha1, long size, int timeoutSec,
+                     Priority priority, LaunchMetrics metrics, java.util.function.IntConsumer progress)
+            throws Exception {
+        Transfer mine = new Transfer(DOWNLOADS.effective(priority), metrics, DOWNLOADS.token());
+        Transfer other;
+        while ((other = IN_FLIGHT.putIfAbsent(target, mine)) != null) {
+            DOWNLOADS.boost(other, mine.priority);
+            try {
+                CompletableFuture.anyOf(other.done, mine.token.signal).get();
+            } catch (ExecutionException e) {
+                // other failed: looked at below
+            }
+            if (mine.token.cancelled()) throw new InterruptedIOException("Download cancelled");
+            try {
+                other.done.join();
+                metrics.deduped(target, size);
+                return;
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof InterruptedIOException)) {
+                    throw new IOException("Shared download of " + label + " failed: " + e.getCause().getMessage());
+                }
+                // Only its launch was cancelled; this one still needs the file
+            }
+        }
+        try {
+            ArtifactStore store = sha1 != null ? STORE : null;
+            if (store != null && store.materialize(sha1, size, target)) {
+                metrics.cache("store", true);
+                metrics.filesLinked.increment();
+                if (size > 0) metrics.bytesLinked.add(size);
+                metrics.fetched.add(target);
+            } else {
+                if (store != null) metrics.cache("store", false);
+                int stalls = 0;
+                String digest;
+                while (true) {
+                    try (DownloadScheduler.Ticket ticket = DOWNLOADS.acquire(mine)) {
+                        digest = fetchOnce(urlStr, target, label, sha1, size, timeoutSec, metrics, progress, ticket);
+                        break;
+                    } catch (DownloadScheduler.Preempted e) {
+                        // Slot handed to more urgent work: queue again, resume from the .part
+                    } catch (Http.Stalled e) {
+                        if (++stalls > STALL_RETRIES) throw e;
+                        log(label + ": " + e.getMessage() + " — reconnecting");
+                    }
+                }
+                if (store != null) store.adopt(target, digest);
+            }
+            mine.done.complete(null);
+            IN_FLIGHT.remove(target, mine);
+        } catch (Exception e) {
+            IN_FLIGHT.remove(target, mine);     // first, so a waiter that retries finds it gone
+            mine.done.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Returns the SHA-1 the file was verified against, or null when none was given */
+    private String fetchOnce(String urlStr, Path target, String label, String sha1, long size, int timeoutSec,
+                             LaunchMetrics metrics, java.util.function.IntConsumer progress,
+                             DownloadScheduler.Ticket ticket)
+            throws Exception {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        long have = Files.exists(part) ? Files.size(part) : 0;
+        if (size >= 0 && have > size) {
+            Files.delete(part);
+            have = 0;
+        }
+        MessageDigest md = sha1 != null ? MessageDigest.getInstance("SHA-1") : null;
+        long written = have;
+
+        if (size < 0 || have < size) {
+            HttpResponse<InputStream> resp = Http.open(urlStr, timeoutSec, have);
+            int code = resp.statusCode();
+            String range = resp.headers().firstValue("Content-Range").orElse("");
+            if (have > 0 && (code == 416 || (code == 206 && !range.startsWith("bytes " + have + "-")))) {
+                // Stale or mismatched .part: drop it and fetch the whole file
+                resp.body().close();
+                Files.delete(part);
+                return fetchOnce(urlStr, target, label, sha1, size, timeoutSec, metrics, progress, ticket);
+            }
+            if (code != 200 && code != 206) {
+                resp.body().close();
+                throw new IOException("HTTP " + code + " downloading " + label);
+            }
+            boolean resumed = code == 206;
+            if (!resumed) written = 0;
+            else if (md != null) digestInto(part, md);
+
+            long total = size >= 0 ? size
+                    : resp.headers().firstValueAsLong("Content-Length").orElse(-1) + written;
+            try (InputStream in = Http.idleLimited(resp.body(), timeoutSec);
+                 OutputStream out = resumed
+                         ? Files.newOutputStream(part, StandardOpenOption.APPEND)
+                         : Files.newOutputStream(part)) {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                    if (md != null) md.update(buf, 0, n);
+                    written += n;
+                    metrics.bytesDownloaded.add(n);
+                    if (progress != null && total > 0) progress.accept((int) ((written * 100) / total));
+                    ticket.checkpoint();
+                }
+            }
+        } else if (md != null) {
+            // Fully downloaded last time but never moved into place
+            digestInto(part, md);
+        }
+        String digest = checkIntegrity(part, label, sha1, size, md, written);
+        moveIntoPlace(part, target);
+        metrics.filesDownloaded.increment();
+        metrics.fetched.add(target);
+        return digest;
+    }
+
+    static void digestInto(Path file, MessageDigest md) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buf = new byte[65536];
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        }
+    }
+
+    static void moveIntoPlace(Path part, Path target) throws IOException {
+        try {
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Returns the digest md computed, which matched sha1; null without md */
+    String checkIntegrity(Path target, String label, String sha1, long size,
+                          MessageDigest md, long written) throws IOException {
+        String problem = null;
+        String actual = null;
+        if (size >= 0 && written != size) {
+            problem = "size " + written + " != " + size;
+        } else if (md != null) {
+            actual = toHex(md.digest());
+            if (!actual.equalsIgnoreCase(sha1)) problem = "sha1 " + actual + " != " + sha1;
+        }
+        if (problem != null) {
+            Files.deleteIfExists(target);
+            throw new IOException("Integrity check failed for " + label + " (" + problem + ")");
+        }
+        return actual;
+    }
+
+    /** Cheap pre-launch check: present and, when the size is known, complete */
+    static boolean isIntact(Path file, long size, LaunchMetrics metrics) {
+        boolean ok;
+        try {
+            ok = Files.exists(file) && (size < 0 || Files.size(file) == size);
+        } catch (IOException e) {
+            ok = false;
+        }
+        metrics.filesChecked.increment();
+        if (ok && metrics.fetched.contains(file)) metrics.deduped(file, size);
+        else metrics.cache("files", ok);
+        return ok;
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] hex = "0123456789abcdef".toCharArray();
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2]     = hex[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = hex[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    static String sha1Of(Path file) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            digestInto(file, md);
+            return toHex(md.digest());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Shared transport for every fetch. One HTTP/2 client multiplexes the many
+     * small library and asset requests over a few pooled connections (falling
+     * back to keep-alive HTTP/1.1 where a host does not speak h2), so the TLS
+     * handshake is paid once per host instead of once per file.
+     *
+     * Set -Dctbadlion.mirror=http://127.0.0.1:8080/ (or {@link #mirror}) to send
+     * all traffic to a stand-in server: https://host/path becomes mirror/host/path.
+     */
+    static final class Http {
+        static volatile String mirror = System.getProperty("ctbadlion.mirror");
+
+        static final HttpClient CLIENT = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // Closes bodies that stop delivering; cancelled checks are dropped at once
+        static final ScheduledThreadPoolExecutor WATCHDOG = watchdog();
+
+        private Http() {}
+
+        /** Map an upstream URL onto the mirror, if one is configured */
+        static String resolve(String url) {
+            String base = mirror;
+            if (base == null || base.isEmpty()) return url;
+            int scheme = url.indexOf("://");
+            if (scheme < 0) return url;
+            if (!base.endsWith("/")) base += "/";
+            return base + url.substring(scheme + 3);
+        }
+
+        static HttpRequest.Builder request(String url, int timeoutSec) {
+            return HttpRequest.newBuilder(URI.create(resolve(url)))
+                    .timeout(Duration.ofSeconds(timeoutSec))
+                    .header("User-Agent", APP + "/" + VER)
+                    .GET();
+        }
+
+        /**
+         * Blocking GET with a streamed body; caller must close the body. A
+         * positive offset asks for the bytes from there on (206 if honoured).
+         */
+        static HttpResponse<InputStream> open(String url, int timeoutSec, long from)
+                throws IOException, InterruptedException {
+            HttpRequest.Builder req = request(url, timeoutSec);
+            if (from > 0) req.header("Range", "bytes=" + from + "-");
+            return CLIENT.send(req.build(), HttpResponse.BodyHandlers.ofInputStream());
+        }
+
+        /**
+         * The request timeout stops counting once the headers are in, so a
+         * streamed body gets its own limit: {@link Stalled} when no byte has
+         * arrived for idleSec, like a socket read timeout.
+         */
+        static InputStream idleLimited(InputStream body, int idleSec) {
+            return new IdleTimeoutInputStream(body, idleSec);
+        }
+
+        private static ScheduledThreadPoolExecutor watchdog() {
+            ScheduledThreadPoolExecutor w = new ScheduledThreadPoolExecutor(1, daemonThreads("http-watchdog-"));
+            w.setRemoveOnCancelPolicy(true);
+            return w;
+        }
+
+        /** A body went quiet mid-transfer; the .part keeps what did arrive */
+        static final class Stalled extends HttpTimeoutException {
+            private static final long serialVersionUID = 1L;
+
+            Stalled(String message) {
+                super(message);
+            }
+        }
+
+        /**
+         * Body stream watched from {@link #WATCHDOG}: once the idle limit
+         * passes without a byte the stream is closed under the blocked
+         * reader, which then fails with {@link Stalled} rather than EOF.
+         */
+        static final class IdleTimeoutInputStream extends FilterInputStream {
+            private final long idleNanos;
+            private final ScheduledFuture<?> check;
+            private volatile long lastByte = System.nanoTime();
+            private volatile boolean stalled;
+
+            IdleTimeoutInputStream(InputStream in, int idleSec) {
+                super(in);
+                this.idleNanos = TimeUnit.SECONDS.toNanos(Math.max(1, idleSec));
+                long every = Math.max(250, idleSec * 250L);
+                check = WATCHDOG.scheduleWithFixedDelay(this::check, every, every, TimeUnit.MILLISECONDS);
+            }
+
+            private void check() {
+                if (stalled || System.nanoTime() - lastByte < idleNanos) return;
+                stalled = true;
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+
+            private Stalled stalled() {
+                return new Stalled("no data for " + TimeUnit.NANOSECONDS.toSeconds(idleNanos) + " s");
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n;
+                try {
+                    n = in.read(b, off, len);
+                } catch (IOException e) {
+                    if (stalled) throw stalled();
+                    throw e;
+                }
+                if (stalled) throw stalled();
+                lastByte = System.nanoTime();
+                return n;
+            }
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) > 0 ? one[0] & 0xFF : -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                check.cancel(false);
+                in.close();
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  DOWNLOAD SCHEDULER
+    // ═══════════════════════════════════════════════════════════════════
+    /** Download classes, most urgent first */
+    enum Priority {
+        CRITICAL,   // needed before the game can start: version JSON, client JAR, libraries, natives
+        NORMAL,     // assets the game loads at startup
+        DEFERRED,   // sounds and music, streamed in after startup
+        PREFETCH    // background installs nobody is waiting on
+    }
+
+    static final DownloadScheduler DOWNLOADS = new DownloadScheduler(DOWNLOAD_SLOTS);
+
+    /** One launch's cancel switch; every transfer the launch starts or waits on watches it */
+    static final class CancelToken {
+        static final CancelToken NEVER = new CancelToken();
+
+        final CompletableFuture<Void> signal = new CompletableFuture<>();
+
+        void cancel() {
+            if (this != NEVER) signal.complete(null);
+        }
+
+        boolean cancelled() {
+            return signal.isDone();
+        }
+    }
+
+    /**
+     * Admission control for every transfer. At most {@code slots} are open at
+     * once; a free slot goes to the most urgent waiting class, first come first
+     * served within a class, so equal work shares connections evenly. Running
+     * transfers check in after every buffer: one yields its slot when a more
+     * urgent transfer is waiting for it, and prefetching stands aside entirely
+     * while anything critical is queued or running. A yielded transfer keeps
+     * its .part and resumes with a Range request once it is readmitted.
+     *
+     * Work run inside {@link #background} downloads at PREFETCH whatever it asks
+     * for, and work run inside {@link #cancellable} answers to that launch's
+     * cancel token; both travel with the tasks that work hands to the
+     * {@link TaskScheduler} lanes.
+     */
+    static final class DownloadScheduler {
+        final int slots;
+        private final List<ArrayDeque<Ticket>> waiting = new ArrayList<>();
+        private final Set<Ticket> running = new HashSet<>();
+        // Read lock-free by checkpoint(); written under the monitor
+        private volatile int busy;
+        private volatile int urgent = Integer.MAX_VALUE;    // ordinal of the most urgent waiter
+        private volatile int critical;                      // CRITICAL tickets queued or running
+        private final ThreadLocal<Boolean> background = new ThreadLocal<>();
+        private final ThreadLocal<CancelToken> token = new ThreadLocal<>();
+
+        DownloadScheduler(int slots) {
+            this.slots = Math.max(1, slots);
+            for (int i = 0; i < Priority.values().length; i++) waiting.add(new ArrayDeque<>());
+        }
+
+        /** Thrown from a checkpoint; the transfer re-queues and resumes from its .part */
+        static final class Preempted extends IOException {
+            private static final long serialVersionUID = 1L;
+
+            Preempted() {
+                super("preempted", null);
+            }
+        }
+
+        final class Ticket implements AutoCloseable {
+            final Transfer transfer;
+            volatile Priority priority;
+
+            Ticket(Transfer transfer) {
+                this.transfer = transfer;
+                this.priority = transfer.priority;
+            }
+
+            /** Per-buffer check-in: cheap unless the slot is wanted elsewhere */
+            void checkpoint() throws IOException {
+                if (transfer.token.cancelled() || Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Download cancelled");
+                }
+                int p = priority.ordinal();
+                if ((urgent < p && busy >= slots) || (priority == Priority.PREFETCH && critical > 0)) {
+                    transfer.metrics.transfersYielded.increment();
+                    throw new Preempted();
+                }
+            }
+
+            @Override
+            public void close() {
+                release(this);
+            }
+        }
+
+        <T> T background(Callable<T> body) throws Exception {
+            Boolean was = background.get();
+            background.set(Boolean.TRUE);
+            try {
+                return body.call();
+            } finally {
+                background.set(was);
+            }
+        }
+
+        /** Runs body as one launch: every transfer it starts, here or on a lane, stops when t is cancelled */
+        <T> T cancellable(CancelToken t, Callable<T> body) throws Exception {
+            CancelToken was = token.get();
+            token.set(t);
+            try {
+                return body.call();
+            } finally {
+                token.set(was);
+            }
+        }
+
+        /** The task, run with the calling thread's background flag and cancel token */
+        Runnable carry(Runnable task) {
+            Boolean flag = background.get();
+            CancelToken tok = token.get();
+            return () -> {
+                Boolean was = background.get();
+                CancelToken wasToken = token.get();
+                background.set(flag);
+                token.set(tok);
+                try {
+                    task.run();
+                } finally {
+                    background.set(was);
+                    token.set(wasToken);
+                }
+            };
+        }
+
+        Priority effective(Priority p) {
+            return Boolean.TRUE.equals(background.get()) ? Priority.PREFETCH : p;
+        }
+
+        CancelToken token() {
+            CancelToken t = token.get();
+            return t != null ? t : CancelToken.NEVER;
+        }
+
+        /** Blocks until the transfer may open a connection */
+        synchronized Ticket acquire(Transfer transfer) throws InterruptedException, IOException {
+            if (transfer.token.cancelled()) throw new InterruptedIOException("Download cancelled");
+            Ticket t = new Ticket(transfer);
+            transfer.ticket = t;
+            waiting.get(t.priority.ordinal()).add(t);
+            if (t.priority == Priority.CRITICAL) critical++;
+            updateUrgent();
+            try {
+                while (!admissible(t)) {
+                    if (transfer.token.cancelled()) throw new InterruptedIOException("Download cancelled");
+                    wait();
+                }
+            } catch (InterruptedException | IOException e) {
+                waiting.get(t.priority.ordinal()).remove(t);
+                if (t.priority == Priority.CRITICAL) critical--;
+                updateUrgent();
+                notifyAll();
+                throw e;
+            }
+            waiting.get(t.priority.ordinal()).poll();
+            running.add(t);
+            busy = running.size();
+            updateUrgent();
+            notifyAll();    // the next in line may fit as well
+            return t;
+        }
+
+        private boolean admissible(Ticket t) {
+            int p = t.priority.ordinal();
+            return busy < slots && urgent == p && waiting.get(p).peek() == t
+                    && !(t.priority == Priority.PREFETCH && critical > 0);
+        }
+
+        private synchronized void release(Ticket t) {
+            if (!running.remove(t)) return;
+            busy = running.size();
+            if (t.priority == Priority.CRITICAL) critical--;
+            notifyAll();
+        }
+
+        /** Raise a transfer someone more urgent now depends on, queued or running */
+        synchronized void boost(Transfer transfer, Priority p) {
+            if (p.ordinal() >= transfer.priority.ordinal()) return;
+            transfer.priority = p;
+            Ticket t = transfer.ticket;
+            if (t == null) return;
+            boolean queued = waiting.get(t.priority.ordinal()).remove(t);
+            if (!queued && !running.contains(t)) return;
+            if (p == Priority.CRITICAL) critical++;
+            t.priority = p;
+            if (queued) waiting.get(p.ordinal()).add(t);
+            updateUrgent();
+            notifyAll();
+        }
+
+        /**
+         * Cancel one launch's transfers, queued or running, and refuse any it
+         * starts later, so an aborted launch fails fast instead of starting the
+         * rest of its files. Transfers of other launches are not touched.
+         */
+        synchronized void cancel(CancelToken t) {
+            t.cancel();
+            notifyAll();    // queued tickets of that launch give up
+        }
+
+        private void updateUrgent() {
+            int u = Integer.MAX_VALUE;
+            for (int i = 0; i < waiting.size() && u == Integer.MAX_VALUE; i++) {
+                if (!waiting.get(i).isEmpty()) u = i;
+            }
+            urgent = u;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  SHARED ARTIFACT STORE
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Content-addressed blobs (objects/ab/abcdef...) shared by every root on
+     * the machine. A verified download is adopted into the store; a root that
+     * needs the same SHA-1 later gets a hard link to the blob (a copy when the
+     * store is on another file system), so the Nth root costs neither network
+     * nor, with links, disk.
+     *
+     * Each root records the blobs it uses in roots/&lt;key&gt;.refs next to a
+     * roots/&lt;key&gt;.root holding its path; a blob's reference count is the
+     * number of live roots listing it, and {@link #gc} only removes blobs with
+     * none. Roots keep working if the store goes away: their files are links
+     * or copies, never pointers into it.
+     *
+     * A link shares one inode between the blob and every root, and the roots
+     * own those files: the store never changes their mode, so a root that
+     * writes through its file can change the blob. A blob is therefore only
+     * published under the digest its bytes were verified against while they
+     * streamed in, and is hashed again before it is handed to another root.
+     * That check runs once per process unless the blob's mtime moves.
+     *
+     * Off unless -Dctbadlion.store=&lt;dir&gt; (or =default for the per-user
+     * data directory) is given, so nothing is written outside the root by
+     * default.
+     */
+    static final class ArtifactStore {
+        final Path dir;
+        final Path refsFile;
+        private final Set<String> refs = ConcurrentHashMap.newKeySet();
+        // sha1 → blob mtime when its content last checked out
+        private final Map<String, java.nio.file.attribute.FileTime> verified = new ConcurrentHashMap<>();
+        private volatile boolean hardLinks = true;
+
+        private ArtifactStore(Path dir, Path refsFile) {
+            this.dir = dir;
+            this.refsFile = refsFile;
+        }
+
+        /** Opens (creating if needed) the store for one root; null if dir is null or unusable */
+        static ArtifactStore open(Path dir, Path root) {
+            if (dir == null) return null;
+            try {
+                Path abs = root.toAbsolutePath().normalize();
+                String key = UUID.nameUUIDFromBytes(abs.toString().getBytes(StandardCharsets.UTF_8))
+                        .toString().replace("-", "").substring(0, 16);
+                Path roots = Files.createDirectories(dir.resolve("roots"));
+                Files.createDirectories(dir.resolve("objects"));
+                Files.write(roots.resolve(key + ".root"), abs.toString().getBytes(StandardCharsets.UTF_8));
+                ArtifactStore store = new ArtifactStore(dir, roots.resolve(key + ".refs"));
+                if (Files.exists(store.refsFile)) store.refs.addAll(Files.readAllLines(store.refsFile));
+                return store;
+            } catch (IOException e) {
+                System.err.println("Shared store disabled: " + e);
+                return null;
+            }
+        }
+
+        Path blob(String sha1) {
+            String h = sha1.toLowerCase(Locale.ROOT);
+            return dir.resolve("objects").resolve(h.substring(0, 2)).resolve(h);
+        }
+
+        /** Places the blob at target if the store has it (with the expected size and hash) */
+        boolean materialize(String sha1, long size, Path target) {
+            Path blob = blob(sha1);
+            try {
+                if (!Files.isRegularFile(blob) || (size >= 0 && Files.size(blob) != size)) return false;
+                if (!intact(sha1, blob)) {
+                    // Changed in place through some root's link: stop serving it
+                    Files.deleteIfExists(blob);
+                    return false;
+                }
+                Files.createDirectories(target.getParent());
+                Path tmp = target.resolveSibling(target.getFileName() + ".link");
+                Files.deleteIfExists(tmp);
+                if (!link(tmp, blob)) Files.copy(blob, tmp);
+                moveIntoPlace(tmp, target);
+                addRef(sha1);
+                return true;
+            } catch (IOException e) {
+                return false;   // fall back to downloading
+            }
+        }
+
+        /**
+         * Adds a just-downloaded file to the store, sharing its inode where
+         * possible. sha1 is the digest computed over those bytes as they were
+         * written, so they are not read again here.
+         */
+        void adopt(Path file, String sha1) {
+            if (sha1 == null) return;
+            Path blob = blob(sha1);
+            try {
+                if (!Files.exists(blob)) {
+                    Files.createDirectories(blob.getParent());
+                    Path tmp = blob.resolveSibling(blob.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+                    Files.deleteIfExists(tmp);
+                    if (!link(tmp, file)) Files.copy(file, tmp);
+                    moveIntoPlace(tmp, blob);     // racing adopters all write the same bytes
+                    verified.put(sha1.toLowerCase(Locale.ROOT), Files.getLastModifiedTime(blob));
+                }
+                addRef(sha1);
+            } catch (IOException e) {
+                // The store is only a cache; the root already has its file
+            }
+        }
+
+        private boolean intact(String sha1, Path blob) throws IOException {
+            String key = sha1.toLowerCase(Locale.ROOT);
+            java.nio.file.attribute.FileTime mtime = Files.getLastModifiedTime(blob);
+            if (mtime.equals(verified.get(key))) return true;
+            if (!sha1Of(blob).equalsIgnoreCase(sha1)) return false;
+            verified.put(key, mtime);
+            return true;
+        }
+
+        /** Hard link when possible; false means copy this one */
+        private boolean link(Path link, Path existing) throws IOException {
+            if (!hardLinks) return false;
+            try {
+                Files.createLink(link, existing);
+                return true;
+            } catch (UnsupportedOperationException e) {
+                hardLinks = false;  // no link support: copy from now on
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (IOException e) {
+                // Another file system never starts working; anything else may be this file only
+                if (!Files.getFileStore(link.getParent()).equals(Files.getFileStore(existing))) hardLinks = false;
+            }
+            return false;
+        }
+
+        private void addRef(String sha1) throws IOException {
+            if (!refs.add(sha1.toLowerCase(Locale.ROOT))) return;
+            synchronized (this) {
+                Files.write(refsFile, (sha1.toLowerCase(Locale.ROOT) + "\n").getBytes(StandardCharsets.US_ASCII),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+
+        /**
+         * Drops the records of roots that no longer exist, then deletes blobs no
+         * live root references. Blobs younger than minAgeMs are kept, so a
+         * download another launcher is adopting right now is not swept away.
+         * Returns {blobs removed, bytes freed}.
+         */
+        long[] gc(long minAgeMs) throws IOException {
+            Set<String> live = new HashSet<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir.resolve("roots"), "*.root")) {
+                for (Path rootFile : ds) {
+                    String name = rootFile.getFileName().toString();
+                    Path refs = rootFile.resolveSibling(name.substring(0, name.length() - 5) + ".refs");
+                    Path root = Paths.get(new String(Files.readAllBytes(rootFile), StandardCharsets.UTF_8));
+                    if (!Files.isDirectory(root)) {
+                        Files.deleteIfExists(refs);
+                        Files.delete(rootFile);
+                    } else if (Files.exists(refs)) {
+                        live.addAll(Files.readAllLines(refs));
+                    }
+                }
+            }
+            long[] freed = new long[2];
+            long cutoff = System.currentTimeMillis() - minAgeMs;
+            try (java.util.stream.Stream<Path> walk = Files.walk(dir.resolve("objects"), 2)) {
+                for (Path blob : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                    if (live.contains(blob.getFileName().toString())) continue;
+                    if (Files.getLastModifiedTime(blob).toMillis() > cutoff) continue;
+                    long size = Files.size(blob);
+                    Files.delete(blob);
+                    freed[0]++;
+                    freed[1] += size;
+                }
+            }
+            return freed;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  MOCK UPSTREAM (offline end-to-end runs)
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Local stand-in for Mojang, Fabric meta/maven and Modrinth, laid out the
+     * way {@link Http#resolve} maps URLs onto a mirror (/host/path). Every
+     * version JSON in the fixture directory is served with its downloads
+     * swapped for small synthetic files whose sha1/size are rewritten to
+     * match, so a full install and verify runs without the network. Asset
+     * indexes come from asset_index_&lt;id&gt;.json fixtures when present.
+     *
+     * Latency, per-connection bandwidth, 503 responses, bodies cut short
+     * mid-transfer and bodies that stall mid-transfer (half sent, then silence
+     * for stallMs before the connection drops) can be injected; the random
+     * source is seeded so a run is reproducible. Range and If-None-Match are
+     * honoured like the real CDNs, and connections are kept alive unless
+     * closeConnections is set, to measure the launcher without reuse.
+     *
+     * Enable with -Dctbadlion.mock=&lt;fixture dir&gt; (best combined with
+     * -Dctbadlion.home=&lt;scratch dir&gt;); tune with -Dctbadlion.mock.latency=ms,
+     * .bandwidth=bytes/s, .errorRate=0..1, .cutRate=0..1, .stallRate=0..1,
+     * .stallMs=ms, .maxSize=bytes, .seed=N, .closeConnections=true.
+     */
+    static final class MockUpstream {
+        static final String LOADER = "0.15.11";
+        static final String KNOT   = "net.fabricmc.loader.impl.launch.knot.KnotClient";
+
+        final Path   fixtures;
+        final long   latencyMs;
+        final long   bytesPerSec;
+        final double errorRate;
+        final double cutRate;
+        final double stallRate;
+        final long   stallMs;
+        final int    maxSize;
+        final boolean closeConnections;
+        final Random rnd;
+        // "host/path" → body
+        final Map<String, byte[]> files = new ConcurrentHashMap<>();
+        final AtomicLong requests = new AtomicLong(), bytesServed = new AtomicLong();
+        final AtomicLong errors = new AtomicLong(), cuts = new AtomicLong(), stalls = new AtomicLong();
+        com.sun.net.httpserver.HttpServer server;
+
+        MockUpstream(Path fixtures, long latencyMs, long bytesPerSec, double errorRate,
+                     double cutRate, double stallRate, long stallMs, int maxSize,
+                     boolean closeConnections, long seed) {
+            this.fixtures = fixtures;
+            this.latencyMs = latencyMs;
+            this.bytesPerSec = bytesPerSec;
+            this.errorRate = errorRate;
+            this.cutRate = cutRate;
+            this.stallRate = stallRate;
+            this.stallMs = stallMs;
+            this.maxSize = maxSize;
+            this.closeConnections = closeConnections;
+            this.rnd = new Random(seed);
+        }
+
+        static MockUpstream fromProperties(Path fixtures) {
+            return new MockUpstream(fixtures,
+                    Long.getLong("ctbadlion.mock.latency", 0),
+                    Long.getLong("ctbadlion.mock.bandwidth", 0),
+                    Double.parseDouble(System.getProperty("ctbadlion.mock.errorRate", "0")),
+                    Double.parseDouble(System.getProperty("ctbadlion.mock.cutRate", "0")),
+                    Double.parseDouble(System.getProperty("ctbadlion.mock.stallRate", "0")),
+                    Long.getLong("ctbadlion.mock.stallMs", 60_000),
+                    Integer.getInteger("ctbadlion.mock.maxSize", 64 * 1024),
+                    Boolean.getBoolean("ctbadlion.mock.closeConnections"),
+                    Long.getLong("ctbadlion.mock.seed", 1L));
+        }
+
+        /** Builds the synthetic upstream and starts serving on a loopback port (0 = any) */
+        MockUpstream start(int port) throws IOException {
+            List<Object> versions = new ArrayList<>();
+            List<Path> jsons;
+            try (java.util.stream.Stream<Path> s = Files.list(fixtures)) {
+                jsons = s.filter(p -> p.toString().endsWith(".json")).sorted().collect(Collectors.toList());
+            }
+            for (Path p : jsons) {
+                Object tree;
+                try (JsonReader r = JsonReader.of(p)) {
+                    tree = r.readTree();
+                }
+                if (!(tree instanceof Map)) continue;
+                Map<String, Object> vj = cast(tree);
+                if (!(vj.get("id") instanceof String) || !(vj.get("libraries") instanceof List)) continue;
+                String id = (String) vj.get("id");
+                addVersion(id, vj);
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("id", id);
+                entry.put("type", vj.get("type") instanceof String ? vj.get("type") : "release");
+                entry.put("url", "https://piston-meta.mojang.com/v1/packages/mock/" + id + ".json");
+                versions.add(entry);
+            }
+            Map<String, Object> manifest = new LinkedHashMap<>();
+            manifest.put("versions", versions);
+            put(MANIFEST_URL, toJson(manifest));
+            put(MODRINTH_API + "project/fabulously-optimized",
+                    "{\"slug\": \"fabulously-optimized\", \"title\": \"Fabulously Optimized\","
+                            + " \"project_type\": \"modpack\", \"versions\": []}");
+
+            // Without TCP_NODELAY small responses on a kept-alive connection wait on
+            // delayed ACKs; the JDK server reads this once, when it is first created
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            server = com.sun.net.httpserver.HttpServer.create(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/", this::handle);
+            server.setExecutor(Executors.newCachedThreadPool(daemonThreads("mock-http-")));
+            server.start();
+            return this;
+        }
+
+        String baseUrl() {
+            return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+        }
+
+        int versionCount() {
+            return (int) files.keySet().stream().filter(k -> k.contains("/packages/mock/")).count();
+        }
+
+        void stop() {
+            if (server != null) server.stop(0);
+        }
+
+        private void addVersion(String id, Map<String, Object> vj) throws IOException {
+            Map<String, Object> downloads = cast(vj.get("downloads"));
+            if (downloads != null) {
+                downloads.remove("server");
+                downloads.remove("server_mappings");
+                downloads.remove("client_mappings");
+                for (Object d : downloads.values()) synthesize(cast(d), true);
+            }
+            for (Object lib : (List<?>) vj.get("libraries")) {
+                Map<String, Object> l = cast(lib);
+                Map<String, Object> dl = l != null ? cast(l.get("downloads")) : null;
+                if (dl == null) continue;
+                synthesize(cast(dl.get("artifact")), false);
+                Map<String, Object> classifiers = cast(dl.get("classifiers"));
+                if (classifiers != null) for (Object c : classifiers.values()) synthesize(cast(c), false);
+            }
+            vj.remove("logging");
+
+            Map<String, Object> ai = cast(vj.get("assetIndex"));
+            if (ai != null && ai.get("url") instanceof String) {
+                String indexId = String.valueOf(ai.get("id"));
+                byte[] index = assetIndex(indexId).getBytes(StandardCharsets.UTF_8);
+                put((String) ai.get("url"), index);
+                ai.put("sha1", sha1Hex(index));
+                ai.put("size", index.length);
+            }
+            put("https://piston-meta.mojang.com/v1/packages/mock/" + id + ".json", toJson(vj));
+
+            // Fabric meta: one stable loader whose profile pulls three libraries from Fabric's maven
+            put(FABRIC_META_URL + id, "[{\"loader\": {\"version\": \"" + LOADER + "\", \"stable\": true}}]");
+            List<Object> fabricLibs = new ArrayList<>();
+            for (String coord : new String[]{"net.fabricmc:fabric-loader:" + LOADER,
+                    "net.fabricmc:intermediary:" + id, "org.ow2.asm:asm:9.6"}) {
+                byte[] jar = jar(coord, false, coord.hashCode());
+                put("https://maven.fabricmc.net/" + mavenToPath(coord).toString().replace(File.separatorChar, '/'), jar);
+                Map<String, Object> l = new LinkedHashMap<>();
+                l.put("name", coord);
+                l.put("url", "https://maven.fabricmc.net/");
+                l.put("sha1", sha1Hex(jar));
+                l.put("size", jar.length);
+                fabricLibs.add(l);
+            }
+            Map<String, Object> profile = new LinkedHashMap<>();
+            profile.put("id", "fabric-loader-" + LOADER + "-" + id);
+            profile.put("inheritsFrom", id);
+            profile.put("mainClass", KNOT);
+            profile.put("libraries", fabricLibs);
+            put(FABRIC_META_URL + id + "/" + LOADER + "/profile/json", toJson(profile));
+        }
+
+        /** Replaces a download entry's target with a synthetic file and rewrites sha1/size */
+        private void synthesize(Map<String, Object> d, boolean client) throws IOException {
+            if (d == null || !(d.get("url") instanceof String)) return;
+            String url = (String) d.get("url");
+            byte[] body = url.endsWith(".jar")
+                    ? jar(url, !client && url.contains("natives"), url.hashCode())
+                    : payload(url.hashCode(), maxSize / 4);
+            put(url, body);
+            d.put("sha1", sha1Hex(body));
+            d.put("size", body.length);
+        }
+
+        /** Index from the fixture when one matches the id, else a small generated one */
+        private String assetIndex(String indexId) throws IOException {
+            Path fixture = fixtures.resolve("asset_index_" + indexId + ".json");
+            List<String> names = new ArrayList<>();
+            if (Files.exists(fixture)) {
+                try (JsonReader r = JsonReader.of(fixture)) {
+                    r.beginObject();
+                    while (r.hasNext()) {
+                        if (!r.nextName().equals("objects")) { r.skipValue(); continue; }
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            names.add(r.nextName());
+                            r.skipValue();
+                        }
+                        r.endObject();
+                    }
+                }
+            } else {
+                for (int i = 0; i < 200; i++) names.add("minecraft/sounds/mock/sound" + i + ".ogg");
+            }
+            Map<String, Object> objects = new LinkedHashMap<>();
+            for (String name : names) {
+                int seed = name.hashCode();
+                byte[] body = payload(seed, 64 + Math.floorMod(seed, Math.max(1, maxSize / 8)));
+                String hash = sha1Hex(body);
+                put(RESOURCES_URL + hash.substring(0, 2) + "/" + hash, body);
+                Map<String, Object> o = new LinkedHashMap<>();
+                o.put("hash", hash);
+                o.put("size", body.length);
+                objects.put(name, o);
+            }
+            Map<String, Object> index = new LinkedHashMap<>();
+            index.put("objects", objects);
+            return toJson(index);
+        }
+
+        /** A small valid JAR; natives JARs also carry one library per platform */
+        private byte[] jar(String name, boolean natives, int seed) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+                ZipEntry mf = new ZipEntry("META-INF/MANIFEST.MF");
+                mf.setTime(0);
+                zos.putNextEntry(mf);
+                zos.write(("Manifest-Version: 1.0\r\nCreated-By: mock " + name + "\r\n\r\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                String stem = name.substring(name.lastIndexOf('/') + 1).replace(".jar", "");
+                List<String> entries = new ArrayList<>();
+                entries.add("mock/" + stem.replace(':', '_') + ".class");
+                if (natives) {
+                    entries.add("lib" + stem + ".so");
+                    entries.add(stem + ".dll");
+                    entries.add("lib" + stem + ".dylib");
+                }
+                int each = Math.max(256, maxSize / (entries.size() * 2));
+                for (String e : entries) {
+                    ZipEntry z = new ZipEntry(e);
+                    z.setTime(0);
+                    zos.putNextEntry(z);
+                    zos.write(payload(seed + e.hashCode(), each));
+                }
+            }
+            return bos.toByteArray();
+        }
+
+        static String sha1Hex(byte[] body) throws IOException {
+            try {
+                return toHex(MessageDigest.getInstance("SHA-1").digest(body));
+            } catch (java.security.NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /** Deterministic, half-compressible bytes */
+        static byte[] payload(int seed, int size) {
+            Random r = new Random(seed);
+            byte[] b = new byte[Math.max(1, size)];
+            for (int i = 0; i < b.length; i++) b[i] = (i & 1) == 0 ? (byte) r.nextInt(256) : (byte) (i >> 4);
+            return b;
+        }
+
+        private void put(String url, String body) {
+            put(url, body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void put(String url, byte[] body) {
+            files.put(url.substring(url.indexOf("://") + 3), body);
+        }
+
+        private boolean chance(double rate) {
+            if (rate <= 0) return false;
+            synchronized (rnd) {
+                return rnd.nextDouble() < rate;
+            }
+        }
+
+        private void handle(com.sun.net.httpserver.HttpExchange ex) throws IOException {
+            try {
+                requests.incrementAndGet();
+                if (closeConnections) ex.getResponseHeaders().set("Connection", "close");
+                if (latencyMs > 0) Thread.sleep(latencyMs);
+                String key = ex.getRequestURI().getPath().substring(1);
+                byte[] body = files.get(key);
+                if (body == null) {
+                    ex.sendResponseHeaders(404, -1);
+                    return;
+                }
+                if (chance(errorRate)) {
+                    errors.incrementAndGet();
+                    ex.sendResponseHeaders(503, -1);
+                    return;
+                }
+                String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+                ex.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+                    ex.sendResponseHeaders(304, -1);
+                    return;
+                }
+                int from = 0;
+                String range = ex.getRequestHeaders().getFirst("Range");
+                if (range != null && range.startsWith("bytes=") && range.endsWith("-")) {
+                    long start;
+                    try {
+                        start = Long.parseLong(range.substring(6, range.length() - 1));
+                    } catch (NumberFormatException e) {
+                        start = -1;
+                    }
+                    if (start < 0) {
+                        ex.sendResponseHeaders(400, -1);
+                        return;
+                    }
+                    if (start >= body.length) {
+                        ex.getResponseHeaders().set("Content-Range", "bytes */" + body.length);
+                        ex.sendResponseHeaders(416, -1);
+                        return;
+                    }
+                    from = (int) start;
+                    ex.getResponseHeaders().set("Content-Range",
+                            "bytes " + from + "-" + (body.length - 1) + "/" + body.length);
+                }
+                int len = body.length - from;
+                ex.sendResponseHeaders(from > 0 ? 206 : 200, len);
+                boolean stall = chance(stallRate);
+                int stop = stall || chance(cutRate) ? from + len / 2 : body.length;
+                try (OutputStream out = ex.getResponseBody()) {
+                    long t0 = System.nanoTime();
+                    int sent = 0;
+                    for (int off = from; off < stop; ) {
+                        int n = Math.min(16 * 1024, stop - off);
+                        out.write(body, off, n);
+                        off += n;
+                        sent += n;
+                        bytesServed.addAndGet(n);
+                        if (bytesPerSec > 0) {
+                            long due = t0 + sent * 1_000_000_000L / bytesPerSec - System.nanoTime();
+                            if (due > 0) Thread.sleep(due / 1_000_000, (int) (due % 1_000_000));
+                        }
+                    }
+                    if (stop < body.length) {
+                        out.flush();
+                        if (stall) {
+                            // Connection stays open but silent, like a wedged mirror
+                            stalls.incrementAndGet();
+                            Thread.sleep(stallMs);
+                        } else {
+                            cuts.incrementAndGet();
+                        }
+                        throw new IOException("injected cut");  // drops the connection mid-body
                     }
                 }
-                if (i % 50 == 0) {
-                    updateProgress(i + 1, hashes.size(), "Assets");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ex.close();
+            }
+        }
+
+        String stats() {
+            return String.format("mock: %d requests, %.1f MB served, %d errors, %d cut bodies, %d stalled",
+                    requests.get(), bytesServed.get() / 1048576.0, errors.get(), cuts.get(), stalls.get());
+        }
+
+        @SuppressWarnings("unchecked")
+        static Map<String, Object> cast(Object o) {
+            return o instanceof Map ? (Map<String, Object>) o : null;
+        }
+
+        /** Writes a readTree() result back out; only Numbers are emitted unquoted, every String is quoted */
+        static String toJson(Object tree) {
+            StringBuilder sb = new StringBuilder();
+            writeJson(tree, sb);
+            return sb.toString();
+        }
+
+        private static void writeJson(Object v, StringBuilder sb) {
+            if (v instanceof Map) {
+                sb.append('{');
+                String sep = "";
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                    sb.append(sep).append(jsonQuote(String.valueOf(e.getKey()))).append(": ");
+                    writeJson(e.getValue(), sb);
+                    sep = ", ";
+                }
+                sb.append('}');
+            } else if (v instanceof List) {
+                sb.append('[');
+                String sep = "";
+                for (Object o : (List<?>) v) {
+                    sb.append(sep);
+                    writeJson(o, sb);
+                    sep = ", ";
+                }
+                sb.append(']');
+            } else if (v instanceof Boolean || v instanceof Number || v == null) {
+                sb.append(v);
+            } else {
+                sb.append(jsonQuote(v.toString()));
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  JSON READER & METADATA MODELS (no external deps)
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Minimal pull-style JSON reader. Documents are consumed in one forward pass
+     * straight from a Reader, so version JSONs, asset indexes and the manifest
+     * are turned into models without first being loaded into a String.
+     *
+     * Lenient by design: ',' and ':' are treated as whitespace and are not
+     * validated, which is enough for the well-formed metadata we read.
+     */
+    static final class JsonReader implements Closeable {
+        private final Reader in;
+        private final char[] buf = new char[8192];
+        private final StringBuilder sb = new StringBuilder();
+        private int pos, limit;
+
+        JsonReader(Reader in) {
+            this.in = in;
+        }
+
+        static JsonReader of(String json) {
+            return new JsonReader(new StringReader(json));
+        }
+
+        static JsonReader of(Path file) throws IOException {
+            return new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        }
+
+        /** Next significant character: { } [ ] " n t f, a digit or '-', or -1 at end */
+        int peek() throws IOException {
+            while (true) {
+                if (pos == limit && !fill()) return -1;
+                char c = buf[pos];
+                if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',' || c == ':') {
+                    pos++;
+                } else {
+                    return c;
+                }
+            }
+        }
+
+        void beginObject() throws IOException { expect('{'); }
+        void endObject()   throws IOException { expect('}'); }
+        void beginArray()  throws IOException { expect('['); }
+        void endArray()    throws IOException { expect(']'); }
+
+        /** True while the current object or array has more members */
+        boolean hasNext() throws IOException {
+            int c = peek();
+            return c != '}' && c != ']' && c != -1;
+        }
+
+        String nextName() throws IOException {
+            if (peek() != '"') throw syntax("expected a name");
+            return readString();
+        }
+
+        /** String value; numbers and booleans are returned as their literal text, null as null */
+        String nextString() throws IOException {
+            int c = peek();
+            if (c == '"') return readString();
+            if (c == '{' || c == '[' || c == -1) throw syntax("expected a value");
+            String lit = readLiteral();
+            return lit.equals("null") ? null : lit;
+        }
+
+        long nextLong() throws IOException {
+            String lit = nextString();
+            if (lit == null) return -1;
+            try {
+                return Long.parseLong(lit);
+            } catch (NumberFormatException e) {
+                return (long) Double.parseDouble(lit);
+            }
+        }
+
+        boolean nextBoolean() throws IOException {
+            return "true".equals(nextString());
+        }
+
+        void skipValue() throws IOException {
+            int c = peek();
+            if (c != '{' && c != '[') {
+                if (c == '"') skipString();
+                else readLiteral();
+                return;
+            }
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == -1) throw new EOFException("Unexpected end of JSON");
+                if (c == '"') {
+                    skipString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                    pos++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    pos++;
+                } else {
+                    readLiteral();
+                }
+            } while (depth > 0);
+        }
+
+        /** Materialise the next value as Map / List / String / Number (BigDecimal) / Boolean / null */
+        Object readTree() throws IOException {
+            int c = peek();
+            if (c == '{') {
+                Map<String, Object> map = new LinkedHashMap<>();
+                beginObject();
+                while (hasNext()) map.put(nextName(), readTree());
+                endObject();
+                return map;
+            }
+            if (c == '[') {
+                List<Object> list = new ArrayList<>();
+                beginArray();
+                while (hasNext()) list.add(readTree());
+                endArray();
+                return list;
+            }
+            if (c == 't' || c == 'f') return nextBoolean();
+            if (c == '"') return nextString();
+            String lit = nextString();
+            try {
+                return lit == null ? null : new java.math.BigDecimal(lit);
+            } catch (NumberFormatException e) {
+                throw syntax("bad number " + lit);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean fill() throws IOException {
+            int n = in.read(buf, 0, buf.length);
+            if (n <= 0) return false;
+            pos = 0;
+            limit = n;
+            return true;
+        }
+
+        private void expect(char want) throws IOException {
+            if (peek() != want) throw syntax("expected '" + want + "'");
+            pos++;
+        }
+
+        private char next() throws IOException {
+            if (pos == limit && !fill()) throw new EOFException("Unexpected end of JSON");
+            return buf[pos++];
+        }
+
+        private String readString() throws IOException {
+            pos++; // opening quote
+            sb.setLength(0);
+            while (true) {
+                if (pos == limit && !fill()) throw new EOFException("Unterminated string");
+                int start = pos;
+                while (pos < limit && buf[pos] != '"' && buf[pos] != '\\') pos++;
+                sb.append(buf, start, pos - start);
+                if (pos == limit) continue;
+                if (buf[pos++] == '"') return sb.toString();
+                char e = next();
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        char[] hex = {next(), next(), next(), next()};
+                        sb.append((char) Integer.parseInt(new String(hex), 16));
+                        break;
+                    default:  sb.append(e); // \" \\ \/
+                }
+            }
+        }
+
+        private void skipString() throws IOException {
+            pos++; // opening quote
+            while (true) {
+                char c = next();
+                if (c == '"') return;
+                if (c == '\\') next();
+            }
+        }
+
+        private String readLiteral() throws IOException {
+            sb.setLength(0);
+            while (pos < limit || fill()) {
+                char c = buf[pos];
+                if (c == ',' || c == '}' || c == ']' || c == ':' || c <= ' ') break;
+                sb.append(c);
+                pos++;
+            }
+            if (sb.length() == 0) throw syntax("unexpected character");
+            return sb.toString();
+        }
+
+        private IOException syntax(String msg) throws IOException {
+            int c = peek();
+            return new IOException("Malformed JSON: " + msg + " near '"
+                    + (c < 0 ? "<end>" : String.valueOf((char) c)) + "'");
+        }
+    }
+
+    /** A Mojang-style download entry: {"path", "sha1", "size", "url"} ("id" on asset indexes, "hash" on objects) */
+    static final class Download {
+        String id, path, url, sha1;
+        long size = -1;
+
+        static Download read(JsonReader r) throws IOException {
+            Download d = new Download();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "id":   d.id   = r.nextString(); break;
+                    case "path": d.path = r.nextString(); break;
+                    case "url":  d.url  = r.nextString(); break;
+                    case "hash": // asset index objects
+                    case "sha1": d.sha1 = r.nextString(); break;
+                    case "size": d.size = r.nextLong();   break;
+                    default:     r.skipValue();
                 }
             }
-            log("Assets: " + downloaded + " newly downloaded, " +
-                    (hashes.size() - downloaded) + " cached");
-        } catch (Exception e) {
-            logErr("Asset download error: " + e.getMessage());
+            r.endObject();
+            return d;
+        }
+
+        Artifact to(Path target) {
+            return new Artifact(url, target, sha1, size);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeStr(out, id);
+            writeStr(out, path);
+            writeStr(out, url);
+            writeStr(out, sha1);
+            out.writeLong(size);
+        }
+
+        static Download read(DataInputStream in) throws IOException {
+            Download d = new Download();
+            d.id   = readStr(in);
+            d.path = readStr(in);
+            d.url  = readStr(in);
+            d.sha1 = readStr(in);
+            d.size = in.readLong();
+            return d;
         }
     }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  FABRIC LOADER INSTALLATION
-    // ═══════════════════════════════════════════════════════════════════
-    void installFabric(String mcVersion, StringBuilder classpath) {
-        log("Installing Fabric Loader for MC " + mcVersion + "...");
-        try {
-            // Step 1: Get available loader versions from Fabric Meta
-            String metaUrl = FABRIC_META_URL + mcVersion;
-            String metaJson = httpGet(metaUrl);
+    /** One "rules" entry; a rule naming launcher features never matches (none are enabled) */
+    static final class Rule {
+        boolean allow;
+        String  os, arch;
+        boolean hasFeatures;
+
+        static Rule read(JsonReader r) throws IOException {
+            Rule rule = new Rule();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "action":
+                        rule.allow = "allow".equals(r.nextString());
+                        break;
+                    case "os":
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            String k = r.nextName();
+                            if (k.equals("name")) rule.os = r.nextString();
+                            else if (k.equals("arch")) rule.arch = r.nextString();
+                            else r.skipValue();
+                        }
+                        r.endObject();
+                        break;
+                    case "features":
+                        rule.hasFeatures = true;
+                        r.skipValue();
+                        break;
+                    default:
+                        r.skipValue();
+                }
+            }
+            r.endObject();
+            return rule;
+        }
 
-            // Extract the first (latest stable) loader version
-            String loaderVer = jsonExtract(metaJson,
-                    "\"version\"\\s*:\\s*\"([0-9]+\\.[0-9]+\\.[0-9]+)\"");
-            if (loaderVer == null) {
-                logErr("Fabric: no loader found for MC " + mcVersion);
-                return;
+        boolean matchesHost() {
+            if (hasFeatures) return false;
+            if (os != null && !os.equals(hostOsName())) return false;
+            return arch == null || arch.equals(hostArch());
+        }
+
+        /** Mojang semantics: no rules → allowed; otherwise the last matching rule decides */
+        static boolean allows(List<Rule> rules) {
+            if (rules == null || rules.isEmpty()) return true;
+            boolean allowed = false;
+            for (Rule r : rules) if (r.matchesHost()) allowed = r.allow;
+            return allowed;
+        }
+
+        static List<Rule> readAll(JsonReader r) throws IOException {
+            List<Rule> rules = new ArrayList<>();
+            r.beginArray();
+            while (r.hasNext()) rules.add(read(r));
+            r.endArray();
+            return rules;
+        }
+
+        static void writeAll(DataOutputStream out, List<Rule> rules) throws IOException {
+            out.writeInt(rules == null ? -1 : rules.size());
+            if (rules == null) return;
+            for (Rule r : rules) {
+                out.writeBoolean(r.allow);
+                writeStr(out, r.os);
+                writeStr(out, r.arch);
+                out.writeBoolean(r.hasFeatures);
             }
-            log("Fabric Loader version: " + loaderVer);
+        }
 
-            // Step 2: Get the full profile JSON from Fabric meta
-            String profileUrl = FABRIC_META_URL + mcVersion + "/" + loaderVer + "/profile/json";
-            String profileJson = httpGet(profileUrl);
+        static List<Rule> readAll(DataInputStream in) throws IOException {
+            int n = in.readInt();
+            if (n < 0) return null;
+            List<Rule> rules = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Rule r = new Rule();
+                r.allow = in.readBoolean();
+                r.os = readStr(in);
+                r.arch = readStr(in);
+                r.hasFeatures = in.readBoolean();
+                rules.add(r);
+            }
+            return rules;
+        }
+    }
 
-            // Step 3: Extract main class (usually net.fabricmc.loader.impl.launch.knot.KnotClient)
-            String fabricMain = jsonExtract(profileJson, "\"mainClass\"\\s*:\\s*\"([^\"]+)\"");
-            if (fabricMain != null) {
-                log("Fabric main class: " + fabricMain);
+    static final class Library {
+        String   name;             // maven coordinate
+        String   url;              // maven repository base (Fabric-style entries)
+        String   sha1;             // Fabric-style entries carry these at top level
+        long     size = -1;
+        Download artifact;         // downloads.artifact
+        final Map<String, Download> classifiers = new HashMap<>();
+        final Map<String, String>   natives     = new HashMap<>();  // os → classifier
+        final List<String>          extractExclude = new ArrayList<>();
+        List<Rule> rules;
+
+        static Library read(JsonReader r) throws IOException {
+            Library lib = new Library();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "name": lib.name = r.nextString(); break;
+                    case "url":  lib.url  = r.nextString(); break;
+                    case "sha1": lib.sha1 = r.nextString(); break;
+                    case "size": lib.size = r.nextLong();   break;
+                    case "downloads":
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            String k = r.nextName();
+                            if (k.equals("artifact")) {
+                                lib.artifact = Download.read(r);
+                            } else if (k.equals("classifiers")) {
+                                r.beginObject();
+                                while (r.hasNext()) lib.classifiers.put(r.nextName(), Download.read(r));
+                                r.endObject();
+                            } else {
+                                r.skipValue();
+                            }
+                        }
+                        r.endObject();
+                        break;
+                    case "natives":
+                        r.beginObject();
+                        while (r.hasNext()) lib.natives.put(r.nextName(), r.nextString());
+                        r.endObject();
+                        break;
+                    case "rules":
+                        lib.rules = Rule.readAll(r);
+                        break;
+                    case "extract":
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            if (!r.nextName().equals("exclude")) { r.skipValue(); continue; }
+                            r.beginArray();
+                            while (r.hasNext()) lib.extractExclude.add(r.nextString());
+                            r.endArray();
+                        }
+                        r.endObject();
+                        break;
+                    default:
+                        r.skipValue();
+                }
             }
+            r.endObject();
+            return lib;
+        }
 
-            // Step 4: Download Fabric libraries listed in the profile
-            Pattern libP = Pattern.compile(
-                    "\"name\"\\s*:\\s*\"([^\"]+)\"[^}]*?" +
-                    "\"url\"\\s*:\\s*\"([^\"]+)\"", Pattern.DOTALL);
-            Matcher lm = libP.matcher(profileJson);
+        boolean appliesHere() {
+            return Rule.allows(rules);
+        }
 
-            int count = 0;
-            while (lm.find()) {
-                String mavenCoord = lm.group(1); // e.g. net.fabricmc:fabric-loader:0.15.11
-                String repoUrl    = lm.group(2); // e.g. https://maven.fabricmc.net/
+        /** The natives classifier jar for this OS/arch, or null if the library has none */
+        Download nativesForHost() {
+            String key = natives.get(hostOsName());
+            if (key == null) return null;
+            String bits = System.getProperty("os.arch", "").contains("64") ? "64" : "32";
+            return classifiers.get(key.replace("${arch}", bits));
+        }
 
-                Path libPath = mavenToPath(mavenCoord);
-                if (libPath == null) continue;
+        void write(DataOutputStream out) throws IOException {
+            writeStr(out, name);
+            writeStr(out, url);
+            writeStr(out, sha1);
+            out.writeLong(size);
+            out.writeBoolean(artifact != null);
+            if (artifact != null) artifact.write(out);
+            out.writeInt(classifiers.size());
+            for (Map.Entry<String, Download> c : classifiers.entrySet()) {
+                out.writeUTF(c.getKey());
+                c.getValue().write(out);
+            }
+            out.writeInt(natives.size());
+            for (Map.Entry<String, String> n : natives.entrySet()) {
+                out.writeUTF(n.getKey());
+                out.writeUTF(n.getValue());
+            }
+            out.writeInt(extractExclude.size());
+            for (String ex : extractExclude) out.writeUTF(ex);
+            Rule.writeAll(out, rules);
+        }
 
-                Path target = LIB_DIR.resolve(libPath);
-                classpath.insert(0, target.toString() + File.pathSeparator);
+        static Library read(DataInputStream in) throws IOException {
+            Library lib = new Library();
+            lib.name = readStr(in);
+            lib.url  = readStr(in);
+            lib.sha1 = readStr(in);
+            lib.size = in.readLong();
+            if (in.readBoolean()) lib.artifact = Download.read(in);
+            for (int i = in.readInt(); i > 0; i--) lib.classifiers.put(in.readUTF(), Download.read(in));
+            for (int i = in.readInt(); i > 0; i--) lib.natives.put(in.readUTF(), in.readUTF());
+            for (int i = in.readInt(); i > 0; i--) lib.extractExclude.add(in.readUTF());
+            lib.rules = Rule.readAll(in);
+            return lib;
+        }
+    }
 
-                if (!Files.exists(target)) {
-                    String jarUrl = repoUrl + libPath.toString().replace(File.separator, "/");
-                    try {
-                        Files.createDirectories(target.getParent());
-                        download(jarUrl, target, "fabric: " + mavenCoord);
-                        count++;
-                    } catch (Exception e) {
-                        logErr("Fabric lib fail: " + mavenCoord + " — " + e.getMessage());
+    /** One entry of "arguments.game" / "arguments.jvm": plain string or {rules, value} */
+    static final class Argument {
+        final List<String> values = new ArrayList<>();
+        List<Rule> rules;
+
+        static List<Argument> readAll(JsonReader r) throws IOException {
+            List<Argument> args = new ArrayList<>();
+            r.beginArray();
+            while (r.hasNext()) {
+                Argument a = new Argument();
+                if (r.peek() != '{') {
+                    a.values.add(r.nextString());
+                } else {
+                    r.beginObject();
+                    while (r.hasNext()) {
+                        String k = r.nextName();
+                        if (k.equals("rules")) {
+                            a.rules = Rule.readAll(r);
+                        } else if (k.equals("value") && r.peek() == '[') {
+                            r.beginArray();
+                            while (r.hasNext()) a.values.add(r.nextString());
+                            r.endArray();
+                        } else if (k.equals("value")) {
+                            a.values.add(r.nextString());
+                        } else {
+                            r.skipValue();
+                        }
                     }
+                    r.endObject();
                 }
+                args.add(a);
             }
-            log("Fabric: downloaded " + count + " new libraries");
+            r.endArray();
+            return args;
+        }
 
-            // Step 5: Write a merged version JSON so we use Fabric's main class
-            if (fabricMain != null) {
-                // We'll override the main class at launch time by storing it
-                // The launch code checks for Fabric and uses this main class
-                Path fabricMarker = VER_DIR.resolve(mcVersion).resolve("fabric_main.txt");
-                Files.write(fabricMarker, fabricMain.getBytes(StandardCharsets.UTF_8));
-                log("Fabric installation complete");
+        /** Values of every argument whose rules allow this host, in order */
+        static List<String> resolve(List<Argument> args) {
+            List<String> out = new ArrayList<>();
+            for (Argument a : args) if (Rule.allows(a.rules)) out.addAll(a.values);
+            return out;
+        }
+
+        static void writeAll(DataOutputStream out, List<Argument> args) throws IOException {
+            out.writeInt(args.size());
+            for (Argument a : args) {
+                out.writeInt(a.values.size());
+                for (String v : a.values) out.writeUTF(v);
+                Rule.writeAll(out, a.rules);
             }
+        }
 
-        } catch (Exception e) {
-            logErr("Fabric installation failed: " + e.getMessage());
-            log("You can manually install Fabric from https://fabricmc.net/use/installer/");
+        static void readAll(DataInputStream in, List<Argument> into) throws IOException {
+            for (int i = in.readInt(); i > 0; i--) {
+                Argument a = new Argument();
+                for (int j = in.readInt(); j > 0; j--) a.values.add(in.readUTF());
+                a.rules = Rule.readAll(in);
+                into.add(a);
+            }
         }
     }
 
-    /** Convert Maven coordinate (group:artifact:version) to relative jar path */
-    Path mavenToPath(String coord) {
-        String[] parts = coord.split(":");
-        if (parts.length < 3) return null;
-        String group    = parts[0].replace('.', File.separatorChar);
-        String artifact = parts[1];
-        String version  = parts[2];
-        return Paths.get(group, artifact, version, artifact + "-" + version + ".jar");
-    }
+    /**
+     * The parts of a version JSON (or Fabric profile JSON) the launcher uses.
+     *
+     * {@link #load(Path)} parses a version JSON at most once: the result is kept
+     * in memory and in a compact binary sidecar ({@code <id>.profile.bin}) next to
+     * the JSON, both keyed by the JSON's mtime and size, so repeat launches skip
+     * JSON work entirely.
+     */
+    static final class VersionProfile {
+        static final int SIDECAR_MAGIC   = 0x43545650; // "CTVP"
+        static final int SIDECAR_VERSION = 1;
+        static final Map<Path, VersionProfile> CACHE = new ConcurrentHashMap<>();
+
+        String   id, mainClass, inheritsFrom, assets, minecraftArguments;
+        int      javaMajor = -1;
+        Download client, assetIndex;
+        final List<Library>  libraries = new ArrayList<>();
+        final List<Argument> gameArgs  = new ArrayList<>();
+        final List<Argument> jvmArgs   = new ArrayList<>();
+        // Stamp of the JSON this was built from
+        long jsonMtime, jsonSize;
+
+        static VersionProfile load(Path json) throws IOException {
+            return load(json, null);
+        }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  NETWORK & IO UTILITIES
-    // ═══════════════════════════════════════════════════════════════════
-    String httpGet(String urlStr) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(15000);
-        conn.setRequestProperty("User-Agent", APP + "/" + VER);
+        /** Cached parse of a version JSON: memory, then sidecar, then the JSON itself; metrics may be null */
+        static VersionProfile load(Path json, LaunchMetrics metrics) throws IOException {
+            long mtime = Files.getLastModifiedTime(json).toMillis();
+            long size  = Files.size(json);
+            VersionProfile vp = CACHE.get(json);
+            if (vp != null && vp.jsonMtime == mtime && vp.jsonSize == size) {
+                if (metrics != null) metrics.cache("profile", true);
+                return vp;
+            }
 
-        int code = conn.getResponseCode();
-        if (code != 200) {
-            throw new IOException("HTTP " + code + " for " + urlStr);
+            Path sidecar = sidecarOf(json);
+            vp = readSidecar(sidecar, mtime, size);
+            if (metrics != null) metrics.cache("profile", vp != null);
+            if (vp == null) {
+                vp = read(json);
+                vp.jsonMtime = mtime;
+                vp.jsonSize = size;
+                writeSidecar(vp, sidecar);
+            }
+            CACHE.put(json, vp);
+            return vp;
         }
 
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) sb.append(line);
-            return sb.toString();
+        static Path sidecarOf(Path json) {
+            String name = json.getFileName().toString();
+            if (name.endsWith(".json")) name = name.substring(0, name.length() - 5);
+            return json.resolveSibling(name + ".profile.bin");
         }
-    }
 
-    void download(String urlStr, Path target, String label) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestProperty("User-Agent", APP + "/" + VER);
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(30000);
+        static VersionProfile readSidecar(Path sidecar, long mtime, long size) {
+            if (!Files.exists(sidecar)) return null;
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(sidecar)))) {
+                if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION) return null;
+                if (in.readLong() != mtime || in.readLong() != size) return null;
+                VersionProfile vp = new VersionProfile();
+                vp.jsonMtime = mtime;
+                vp.jsonSize = size;
+                vp.id = readStr(in);
+                vp.mainClass = readStr(in);
+                vp.inheritsFrom = readStr(in);
+                vp.assets = readStr(in);
+                vp.minecraftArguments = readStr(in);
+                vp.javaMajor = in.readInt();
+                if (in.readBoolean()) vp.client = Download.read(in);
+                if (in.readBoolean()) vp.assetIndex = Download.read(in);
+                for (int i = in.readInt(); i > 0; i--) vp.libraries.add(Library.read(in));
+                Argument.readAll(in, vp.gameArgs);
+                Argument.readAll(in, vp.jvmArgs);
+                return vp;
+            } catch (IOException e) {
+                return null; // stale or damaged sidecar: fall back to the JSON
+            }
+        }
 
-        int code = conn.getResponseCode();
-        if (code != 200) {
-            throw new IOException("HTTP " + code + " downloading " + label);
+        static void writeSidecar(VersionProfile vp, Path sidecar) {
+            Path tmp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(SIDECAR_MAGIC);
+                    out.writeInt(SIDECAR_VERSION);
+                    out.writeLong(vp.jsonMtime);
+                    out.writeLong(vp.jsonSize);
+                    writeStr(out, vp.id);
+                    writeStr(out, vp.mainClass);
+                    writeStr(out, vp.inheritsFrom);
+                    writeStr(out, vp.assets);
+                    writeStr(out, vp.minecraftArguments);
+                    out.writeInt(vp.javaMajor);
+                    out.writeBoolean(vp.client != null);
+                    if (vp.client != null) vp.client.write(out);
+                    out.writeBoolean(vp.assetIndex != null);
+                    if (vp.assetIndex != null) vp.assetIndex.write(out);
+                    out.writeInt(vp.libraries.size());
+                    for (Library lib : vp.libraries) lib.write(out);
+                    Argument.writeAll(out, vp.gameArgs);
+                    Argument.writeAll(out, vp.jvmArgs);
+                }
+                moveIntoPlace(tmp, sidecar);
+            } catch (IOException e) {
+                // The sidecar is only an accelerator; launching continues without it
+                try { Files.deleteIfExists(tmp); } catch (IOException ignored) {}
+            }
         }
 
-        long total = conn.getContentLengthLong();
-        long current = 0;
+        static VersionProfile read(Path file) throws IOException {
+            try (JsonReader r = JsonReader.of(file)) {
+                return read(r);
+            }
+        }
 
-        try (InputStream in = conn.getInputStream();
-             OutputStream out = Files.newOutputStream(target)) {
-            byte[] buf = new byte[8192];
-            int n;
-            while ((n = in.read(buf)) > 0) {
-                out.write(buf, 0, n);
-                current += n;
-                if (total > 0) {
-                    final int pct = (int) ((current * 100) / total);
-                    SwingUtilities.invokeLater(() -> progBar.setValue(pct));
+        static VersionProfile read(JsonReader r) throws IOException {
+            VersionProfile vp = new VersionProfile();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "id":           vp.id = r.nextString(); break;
+                    case "mainClass":    vp.mainClass = r.nextString(); break;
+                    case "inheritsFrom": vp.inheritsFrom = r.nextString(); break;
+                    case "assets":       vp.assets = r.nextString(); break;
+                    case "assetIndex":   vp.assetIndex = Download.read(r); break;
+                    case "minecraftArguments": vp.minecraftArguments = r.nextString(); break;
+                    case "downloads":
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            if (r.nextName().equals("client")) vp.client = Download.read(r);
+                            else r.skipValue();
+                        }
+                        r.endObject();
+                        break;
+                    case "libraries":
+                        r.beginArray();
+                        while (r.hasNext()) vp.libraries.add(Library.read(r));
+                        r.endArray();
+                        break;
+                    case "arguments":
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            String k = r.nextName();
+                            if (k.equals("game")) vp.gameArgs.addAll(Argument.readAll(r));
+                            else if (k.equals("jvm")) vp.jvmArgs.addAll(Argument.readAll(r));
+                            else r.skipValue();
+                        }
+                        r.endObject();
+                        break;
+                    case "javaVersion":
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            if (r.nextName().equals("majorVersion")) vp.javaMajor = (int) r.nextLong();
+                            else r.skipValue();
+                        }
+                        r.endObject();
+                        break;
+                    default:
+                        r.skipValue();
                 }
             }
+            r.endObject();
+            return vp;
+        }
+
+        String assetIndexId() {
+            if (assetIndex != null && assetIndex.id != null) return assetIndex.id;
+            return assets != null ? assets : "legacy";
         }
     }
 
-    /** Silent download — no progress bar updates (for bulk asset downloads) */
-    void downloadQuiet(String urlStr, Path target) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestProperty("User-Agent", APP + "/" + VER);
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(10000);
-        if (conn.getResponseCode() != 200) {
-            throw new IOException("HTTP " + conn.getResponseCode());
-        }
-        try (InputStream in = conn.getInputStream();
-             OutputStream out = Files.newOutputStream(target)) {
-            byte[] buf = new byte[4096];
-            int n;
-            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+    static void writeStr(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    static String readStr(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /** Mojang version manifest → [id, type, url] in manifest order */
+    static List<String[]> readManifest(JsonReader r) throws IOException {
+        List<String[]> out = new ArrayList<>();
+        r.beginObject();
+        while (r.hasNext()) {
+            if (!r.nextName().equals("versions")) { r.skipValue(); continue; }
+            r.beginArray();
+            while (r.hasNext()) {
+                String id = null, type = null, url = null;
+                r.beginObject();
+                while (r.hasNext()) {
+                    switch (r.nextName()) {
+                        case "id":   id   = r.nextString(); break;
+                        case "type": type = r.nextString(); break;
+                        case "url":  url  = r.nextString(); break;
+                        default:     r.skipValue();
+                    }
+                }
+                r.endObject();
+                if (id != null && url != null) out.add(new String[]{id, type != null ? type : "release", url});
+            }
+            r.endArray();
         }
+        r.endObject();
+        return out;
     }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  JSON HELPER (regex-based, no external deps)
-    // ═══════════════════════════════════════════════════════════════════
-    String jsonExtract(String json, String regex) {
-        Matcher m = Pattern.compile(regex, Pattern.DOTALL).matcher(json);
-        return m.find() ? m.group(1) : null;
+    /** Asset index "objects" → hash → size, in index order (shared objects collapse) */
+    static Map<String, Long> readAssetObjects(Path indexFile) throws IOException {
+        return readAssetObjects(indexFile, null);
+    }
+
+    /** As above; the hashes of sound and music objects are also collected into sounds */
+    static Map<String, Long> readAssetObjects(Path indexFile, Set<String> sounds) throws IOException {
+        Map<String, Long> objects = new LinkedHashMap<>();
+        try (JsonReader r = JsonReader.of(indexFile)) {
+            r.beginObject();
+            while (r.hasNext()) {
+                if (!r.nextName().equals("objects")) { r.skipValue(); continue; }
+                r.beginObject();
+                while (r.hasNext()) {
+                    String name = r.nextName(); // resource path
+                    Download d = Download.read(r);
+                    if (d.sha1 == null) continue;
+                    objects.put(d.sha1, d.size);
+                    if (sounds != null && isSoundAsset(name)) sounds.add(d.sha1);
+                }
+                r.endObject();
+            }
+            r.endObject();
+        }
+        return objects;
+    }
+
+    /** minecraft/sounds/..., legacy sound/, music/ and newsound/ trees, and the like */
+    static boolean isSoundAsset(String name) {
+        String n = name.startsWith("minecraft/") ? name.substring("minecraft/".length()) : name;
+        return n.startsWith("sounds/") || n.startsWith("sound/") || n.startsWith("music/")
+                || n.startsWith("newsound/") || n.startsWith("records/") || n.startsWith("streaming/")
+                || n.endsWith(".ogg");
+    }
+
+    static String hostOsName() {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        if (os.contains("win")) return "windows";
+        if (os.contains("mac")) return "osx";
+        return "linux";
+    }
+
+    static String hostArch() {
+        String arch = System.getProperty("os.arch", "").toLowerCase();
+        if (arch.equals("x86") || arch.equals("i386") || arch.equals("i686")) return "x86";
+        if (arch.equals("aarch64") || arch.equals("arm64")) return "arm64";
+        return arch.equals("amd64") ? "x86_64" : arch;
+    }
+
+    /** A downloadable file plus the integrity data published for it (sha1 null / size -1 if unknown) */
+    static final class Artifact {
+        final String url;
+        final Path   target;
+        final String sha1;
+        final long   size;
+
+        Artifact(String url, Path target, String sha1, long size) {
+            this.url = url;
+            this.target = target;
+            this.sha1 = sha1;
+            this.size = size;
+        }
     }
 
     // ═══════════════════════════════════════════════════════════════════
@@ -1225,152 +5212,380 @@ public class CTBadlion extends JFrame {
         catch (NumberFormatException e) { return 8; }
     }
 
-    void openDir(Path dir) {
-        try {
-            if (Desktop.isDesktopSupported()) {
-                Desktop.getDesktop().open(dir.toFile());
-            }
-        } catch (Exception e) {
-            logErr("Could not open directory: " + e.getMessage());
-        }
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    //  PROFILE PERSISTENCE
-    // ═══════════════════════════════════════════════════════════════════
-    void saveProfile() {
-        Properties p = new Properties();
-        p.setProperty("user", tfUser.getText());
-        p.setProperty("ram", tfRam.getText());
-        if (tfJavaPath != null) p.setProperty("java", tfJavaPath.getText());
-        p.setProperty("fabric", String.valueOf(cbFabric.isSelected()));
-        p.setProperty("fabopt", String.valueOf(cbFabOpt.isSelected()));
-        if (cbSnapshots != null) p.setProperty("snapshots", String.valueOf(cbSnapshots.isSelected()));
-        if (cbFullscreen != null) p.setProperty("fullscreen", String.valueOf(cbFullscreen.isSelected()));
-        int idx = ddVersion.getSelectedIndex();
-        if (idx >= 0 && idx < dispVersions.size()) {
-            p.setProperty("version", dispVersions.get(idx)[0]);
-        }
-        try (OutputStream out = Files.newOutputStream(PROF_FILE)) {
-            p.store(out, APP + " v" + VER + " Config");
-        } catch (Exception e) {
-            logErr("Profile save: " + e.getMessage());
-        }
-    }
-
-    void loadProfile() {
-        if (!Files.exists(PROF_FILE)) return;
-        Properties p = new Properties();
-        try (InputStream in = Files.newInputStream(PROF_FILE)) {
-            p.load(in);
-            if (p.containsKey("user"))       tfUser.setText(p.getProperty("user"));
-            if (p.containsKey("ram"))        tfRam.setText(p.getProperty("ram"));
-            if (p.containsKey("java") && tfJavaPath != null)
-                tfJavaPath.setText(p.getProperty("java"));
-            if (p.containsKey("fabric"))     cbFabric.setSelected(Boolean.parseBoolean(p.getProperty("fabric")));
-            if (p.containsKey("fabopt"))     cbFabOpt.setSelected(Boolean.parseBoolean(p.getProperty("fabopt")));
-            if (p.containsKey("snapshots") && cbSnapshots != null)
-                cbSnapshots.setSelected(Boolean.parseBoolean(p.getProperty("snapshots")));
-            if (p.containsKey("fullscreen") && cbFullscreen != null)
-                cbFullscreen.setSelected(Boolean.parseBoolean(p.getProperty("fullscreen")));
-            // Version selection is restored after manifest loads
-        } catch (Exception e) {
-            logErr("Profile load: " + e.getMessage());
-        }
-    }
-
     // ═══════════════════════════════════════════════════════════════════
     //  LOGGING & STATUS
     // ═══════════════════════════════════════════════════════════════════
     void log(String s) {
-        String ts = String.format("[%tT] %s", System.currentTimeMillis(), s);
-        SwingUtilities.invokeLater(() -> {
-            if (taLog != null) {
-                taLog.append(ts + "\n");
-                taLog.setCaretPosition(taLog.getDocument().getLength());
-            }
-        });
+        if (headless) System.out.println(Stamp.now() + s);
+        else console.push(Stamp.now() + s);
     }
 
     void logErr(String s) {
-        String ts = String.format("[%tT] [ERR] %s", System.currentTimeMillis(), s);
-        SwingUtilities.invokeLater(() -> {
-            if (taLog != null) {
-                taLog.append(ts + "\n");
-                taLog.setCaretPosition(taLog.getDocument().getLength());
-            }
-        });
+        if (headless) System.out.println(Stamp.now() + "[ERR] " + s);
+        else console.push(Stamp.now() + "[ERR] " + s);
     }
 
-    void setStatus(String s) {
-        SwingUtilities.invokeLater(() -> {
-            if (lblStatus != null) lblStatus.setText(s);
-        });
-    }
+    /**
+     * Console log pipeline. Any thread may push; lines collect in a lock-free
+     * queue that the window drains in batches ({@link Window.ConsoleView}).
+     * Under overload the oldest pending lines are dropped and counted. The
+     * launcher log and every game have their own.
+     */
+    class LogPipeline {
+        static final int MAX_PENDING = 20_000;
+        static final int MAX_BATCH   = 2_000;
+
+        final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pending = new AtomicInteger(0);
+        final AtomicInteger dropped = new AtomicInteger(0);
+
+        void push(String line) {
+            queue.offer(line);
+            if (pending.incrementAndGet() > MAX_PENDING && queue.poll() != null) {
+                pending.decrementAndGet();
+                dropped.incrementAndGet();
+            }
+        }
 
-    void updateProgress(int done, int total, String label) {
-        int pct = total > 0 ? (done * 100) / total : 0;
-        SwingUtilities.invokeLater(() -> {
-            progBar.setValue(pct);
-            lblProgress.setText(label + ": " + done + "/" + total);
-        });
+        /** Moves up to MAX_BATCH lines into sb, after a note of any dropped; false if none were pending */
+        boolean drainTo(StringBuilder sb) {
+            if (queue.isEmpty()) return false;
+            int lost = dropped.getAndSet(0);
+            if (lost > 0) sb.append(Stamp.now()).append("[... ").append(lost).append(" lines dropped ...]\n");
+            int n = 0;
+            String line;
+            while (n < MAX_BATCH && (line = queue.poll()) != null) {
+                sb.append(line).append('\n');
+                n++;
+            }
+            pending.addAndGet(-n);
+            return true;
+        }
     }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  CUSTOM DARK DROPDOWN
-    // ═══════════════════════════════════════════════════════════════════
-    class DarkDropdown extends JComboBox<String> {
-        DarkDropdown() {
-            setRenderer(new DefaultListCellRenderer() {
-                @Override
-                public Component getListCellRendererComponent(
-                        JList<?> list, Object value, int index,
-                        boolean isSelected, boolean hasFocus) {
-                    super.getListCellRendererComponent(list, value, index, isSelected, hasFocus);
-                    setBackground(isSelected ? C_ACCENT : C_FIELD);
-                    setForeground(C_WHITE);
-                    setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
-                    setFont(new Font("Segoe UI", Font.PLAIN, 12));
-                    return this;
-                }
-            });
-            setBackground(C_FIELD);
-            setForeground(C_WHITE);
-            setFont(new Font("Segoe UI", Font.PLAIN, 12));
+    /**
+     * Console text model that holds at most maxLines lines. Line lengths sit in
+     * an int ring so trimming never rescans the text; lines pushed off the top
+     * are removed as one prefix and handed to the spill sink, so memory stays
+     * flat however long the game runs. EDT only, like any Swing document.
+     */
+    static final class BoundedConsoleDocument extends javax.swing.text.PlainDocument {
+        private static final long serialVersionUID = 1L;
+
+        final int   maxLines;
+        final int[] lineLen;
+        final java.util.function.Consumer<String> spill;
+        int head, lines;
+
+        BoundedConsoleDocument(int maxLines, java.util.function.Consumer<String> spill) {
+            this.maxLines = Math.max(1, maxLines);
+            this.lineLen = new int[this.maxLines];
+            this.spill = spill;
         }
 
-        void updateList() {
-            removeAllItems();
-            synchronized (dispVersions) {
-                for (String[] v : dispVersions) {
-                    String tag = v[1].equals("release") ? "" :
-                                 v[1].equals("local") ? " [local]" : " [" + v[1] + "]";
-                    addItem(v[0] + tag);
+        /** Appends newline-terminated text, evicting the oldest lines past the cap */
+        void appendLines(CharSequence text) {
+            int evict = 0, start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != '\n') continue;
+                if (lines == maxLines) {
+                    evict += lineLen[head];
+                    head = (head + 1) % maxLines;
+                    lines--;
                 }
+                lineLen[(head + lines) % maxLines] = i + 1 - start;
+                lines++;
+                start = i + 1;
             }
-            // Try to restore saved version
-            if (Files.exists(PROF_FILE)) {
-                try {
-                    Properties p = new Properties();
-                    p.load(Files.newInputStream(PROF_FILE));
-                    String saved = p.getProperty("version");
-                    if (saved != null) {
-                        for (int i = 0; i < dispVersions.size(); i++) {
-                            if (dispVersions.get(i)[0].equals(saved)) {
-                                setSelectedIndex(i);
-                                return;
-                            }
+            try {
+                int len = getLength();
+                if (evict >= len) {
+                    // The batch alone overflows the ring: spill the old text and
+                    // the head of the batch without inserting them first
+                    int skip = evict - len;
+                    if (spill != null) spill.accept(getText(0, len) + text.subSequence(0, skip));
+                    replace(0, len, text.subSequence(skip, text.length()).toString(), null);
+                } else {
+                    insertString(len, text.toString(), null);
+                    if (evict > 0) {
+                        if (spill != null) spill.accept(getText(0, evict));
+                        remove(0, evict);
+                    }
+                }
+            } catch (javax.swing.text.BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void clear() {
+            try {
+                if (spill != null && getLength() > 0) spill.accept(getText(0, getLength()));
+                remove(0, getLength());
+            } catch (javax.swing.text.BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+            head = lines = 0;
+        }
+    }
+
+    /**
+     * Append-only text log in dir/base.log, written by a daemon thread so
+     * callers never block on disk. When the file passes maxBytes characters or
+     * has been open for maxAgeMs it is renamed to the next segment number
+     * (base.1.log, base.2.log, ...; the highest is the newest) and only the
+     * newest {@code backups} segments are kept. With gzip, segments are
+     * compressed to base.N.log.gz on the I/O lane, so a roll never stalls the
+     * writer. offer() refuses text instead of waiting when the queue is full.
+     */
+    static final class RollingLogWriter {
+        private static final String CLOSE = new String("<close>"); // identity-compared
+
+        final Path    dir;
+        final String  base;
+        final long    maxBytes;
+        final long    maxAgeMs;
+        final int     backups;
+        final boolean gzip;
+        final BlockingQueue<String> queue = new LinkedBlockingQueue<>(4096);
+        final AtomicLong dropped = new AtomicLong(0);
+        final Thread  thread;
+        Writer out;
+        long   written, openedAt;
+        int    nextSegment;     // 0 until the first roll looks for earlier segments
+        // Compressions run one after another, off the writer thread
+        volatile CompletableFuture<Void> compressing = CompletableFuture.completedFuture(null);
+
+        RollingLogWriter(Path dir, String base, long maxBytes, int backups) {
+            this(dir, base, maxBytes, 0, backups, false);
+        }
+
+        RollingLogWriter(Path dir, String base, long maxBytes, long maxAgeMs, int backups, boolean gzip) {
+            this.dir = dir;
+            this.base = base;
+            this.maxBytes = maxBytes;
+            this.maxAgeMs = maxAgeMs;
+            this.backups = backups;
+            this.gzip = gzip;
+            thread = new Thread(this::pump, "log-" + base);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /** Flushes what is queued and stops the writer; waits at most a few seconds, compression included */
+        void close() {
+            try {
+                queue.put(CLOSE);
+                thread.join(5_000);
+                compressing.get(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                // A segment left uncompressed is still a complete log
+            }
+        }
+
+        boolean offer(String text) {
+            if (queue.offer(text)) return true;
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        private void pump() {
+            List<String> batch = new ArrayList<>();
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+                    boolean closing = false;
+                    try {
+                        for (String text : batch) {
+                            if (text == CLOSE) closing = true;
+                            else write(text);
                         }
+                        if (out != null && queue.isEmpty()) out.flush();
+                    } catch (IOException e) {
+                        closeQuietly();
+                        System.err.println("[" + base + "] log write failed: " + e.getMessage());
                     }
-                } catch (Exception ignored) {}
+                    batch.clear();
+                    if (closing) break;
+                }
+            } catch (InterruptedException ignored) {
+            }
+            closeQuietly();
+        }
+
+        private void write(String text) throws IOException {
+            if (out == null) open();
+            else if (maxAgeMs > 0 && System.currentTimeMillis() - openedAt >= maxAgeMs) {
+                roll();
+                open();
+            }
+            out.write(text);
+            written += text.length();
+            if (written >= maxBytes) roll();
+        }
+
+        private void open() throws IOException {
+            Files.createDirectories(dir);
+            Path file = dir.resolve(base + ".log");
+            written = Files.exists(file) ? Files.size(file) : 0;
+            openedAt = System.currentTimeMillis();
+            out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        private Path segment(int i) {
+            return dir.resolve(base + "." + i + ".log");
+        }
+
+        private Path gzipped(Path segment) {
+            return segment.resolveSibling(segment.getFileName() + ".gz");
+        }
+
+        /** Renames the current file to the next segment: one move and at most one delete per roll */
+        private void roll() throws IOException {
+            out.close();
+            out = null;
+            Path current = dir.resolve(base + ".log");
+            if (backups <= 0) {
+                Files.deleteIfExists(current);
+                return;
+            }
+            if (nextSegment == 0) nextSegment = highestSegment() + 1;
+            int n = nextSegment++;
+            Path seg = segment(n);
+            Files.move(current, seg, StandardCopyOption.REPLACE_EXISTING);
+            if (n > backups) {
+                Path expired = segment(n - backups);
+                Files.deleteIfExists(expired);
+                Files.deleteIfExists(gzipped(expired));
+            }
+            if (gzip) compressing = compressing.thenRunAsync(() -> compress(seg), TASKS.io);
+        }
+
+        /** base.N.log → base.N.log.gz; skipped if retention removed the segment first */
+        private void compress(Path seg) {
+            Path tmp = seg.resolveSibling(seg.getFileName() + ".gz.tmp");
+            try {
+                try (InputStream in = Files.newInputStream(seg);
+                     OutputStream gz = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                    in.transferTo(gz);
+                }
+                if (Files.exists(seg)) {
+                    Files.move(tmp, gzipped(seg), StandardCopyOption.REPLACE_EXISTING);
+                    Files.delete(seg);
+                }
+            } catch (NoSuchFileException e) {
+                // expired before its turn came
+            } catch (IOException e) {
+                System.err.println("[" + base + "] gzip of " + seg.getFileName() + " failed: " + e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        /** Highest segment number already on disk, from an earlier run of the same base */
+        private int highestSegment() throws IOException {
+            Pattern name = Pattern.compile(Pattern.quote(base) + "\\.(\\d+)\\.log(\\.gz)?");
+            int top = 0;
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path p : ds) {
+                    java.util.regex.Matcher m = name.matcher(p.getFileName().toString());
+                    if (m.matches()) top = Math.max(top, Integer.parseInt(m.group(1)));
+                }
+            }
+            return top;
+        }
+
+        private void closeQuietly() {
+            try {
+                if (out != null) out.close();
+            } catch (IOException ignored) {
             }
-            if (getItemCount() > 0) setSelectedIndex(0);
+            out = null;
+        }
+    }
+
+    /** "[HH:mm:ss] " in local time, rebuilt only when the second changes */
+    static final class Stamp {
+        private static volatile Stamp last = new Stamp(-1, "");
+        final long   second;
+        final String text;
+
+        private Stamp(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+
+        static String now() {
+            long ms = System.currentTimeMillis();
+            Stamp s = last;
+            if (s.second == ms / 1000) return s.text;
+            long local = (ms + TimeZone.getDefault().getOffset(ms)) / 1000;
+            int h = (int) (local / 3600 % 24), m = (int) (local / 60 % 60), sec = (int) (local % 60);
+            char[] c = {'[', (char) ('0' + h / 10), (char) ('0' + h % 10), ':',
+                    (char) ('0' + m / 10), (char) ('0' + m % 10), ':',
+                    (char) ('0' + sec / 10), (char) ('0' + sec % 10), ']', ' '};
+            last = s = new Stamp(ms / 1000, new String(c));
+            return s.text;
         }
+    }
+
+    void setStatus(String s) {
+        if (headless) {
+            System.out.println(Stamp.now() + ">> " + s);
+            return;
+        }
+        if (ui != null) ui.showStatus(s);
+    }
 
-        String[] getSelected() {
-            int idx = getSelectedIndex();
-            if (idx < 0 || idx >= dispVersions.size()) return null;
-            return dispVersions.get(idx);
+    // Headless progress: one line per label per 10% step
+    private String progLabel;
+    private int    progStep = -1;
+
+    void updateProgress(int done, int total, String label) {
+        int pct = total > 0 ? (done * 100) / total : 0;
+        if (headless) {
+            synchronized (this) {
+                if (label.equals(progLabel) && pct / 10 == progStep && done != total) return;
+                progLabel = label;
+                progStep = pct / 10;
+            }
+            System.out.println(Stamp.now() + "  " + label + ": " + done + "/" + total + " (" + pct + "%)");
+            return;
         }
+        if (ui != null) ui.showProgress(pct, label + ": " + done + "/" + total);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  PALETTE — Badlion-Inspired Dark Theme
+    // ═══════════════════════════════════════════════════════════════════
+    /** Only the window implements this, so the colours initialise with it */
+    interface Palette {
+        Color C_BG          = new Color(22, 22, 26);
+        Color C_SIDEBAR     = new Color(18, 18, 22);
+        Color C_SIDEBAR_HI  = new Color(38, 38, 44);
+        Color C_SIDEBAR_SEL = new Color(48, 48, 56);
+        Color C_TOPBAR      = new Color(30, 30, 36);
+        Color C_FIELD       = new Color(40, 40, 48);
+        Color C_HOVER       = new Color(55, 55, 64);
+        Color C_POPUP       = new Color(36, 36, 42);
+        Color C_ACCENT      = new Color(0, 168, 255);   // Badlion blue
+        Color C_ACCENT_HI   = new Color(30, 190, 255);
+        Color C_ACCENT_DIM  = new Color(0, 120, 190);
+        Color C_GREEN       = new Color(62, 195, 55);
+        Color C_WHITE       = new Color(235, 235, 240);
+        Color C_GREY        = new Color(160, 160, 170);
+        Color C_DIM         = new Color(100, 100, 115);
+        Color C_BORDER      = new Color(50, 50, 58);
+        Color C_CONSOLE     = new Color(14, 14, 18);
+        Color C_CON_TEXT    = new Color(70, 210, 110);
+        Color C_CON_ERR     = new Color(255, 90, 90);
+        Color C_CARD_BG     = new Color(44, 44, 52);
+        Color C_RED         = new Color(255, 75, 75);
     }
 }